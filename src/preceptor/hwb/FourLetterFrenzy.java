@@ -1,5 +1,10 @@
 package preceptor.hwb;
 
+import programming2.ConnectedComponents;
+import programming2.CsrGraph;
+import programming2.Graph;
+import programming2.MazeGraph;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
@@ -12,6 +17,8 @@ public class FourLetterFrenzy {
 
     private final List<String> wordsList = new ArrayList<String>();
     private final Map<String, Set<String>> map = new HashMap<String, Set<String>>();
+    private final Map<String, Integer> indices = new HashMap<String, Integer>();
+    private Graph graph;
 
     public FourLetterFrenzy(String fileName) {
         readWordsList(fileName);
@@ -138,6 +145,57 @@ public class FourLetterFrenzy {
         }
     }
 
+    /**
+     * Builds a graph of the words list, where node i is the ith word of the list and there is an
+     * edge between every pair of words 1 letter different from each other.  The graph is built
+     * from the map, so buildMap must be called first.
+     * Runs in O(n + e) time for e the number of pairs.
+     * @return
+     */
+    public Graph buildGraph() {
+        indices.clear();
+        for (int i=0; i<wordsList.size(); i++) {
+            indices.put(wordsList.get(i), i);
+        }
+        CsrGraph.Builder builder = new CsrGraph.Builder(wordsList.size());
+        for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+            int from = indices.get(entry.getKey());
+            for (String next : entry.getValue()) {
+                builder.addArc(from, indices.get(next));
+            }
+        }
+        graph = builder.build();
+        return graph;
+    }
+
+    /**
+     * Finds a shortest sequence from the start string to the end string, like sequenceSearch,
+     * but with a bidirectional BFS over the word graph, which searches from both ends at once
+     * and meets in the middle.  Returns null if either word is missing or there is no sequence.
+     * @param start
+     * @param end
+     * @return
+     */
+    public List<String> bidirectionalSearch(String start, String end) {
+        if (graph == null) {
+            buildGraph();
+        }
+        Integer startIndex = indices.get(start.toUpperCase());
+        Integer endIndex = indices.get(end.toUpperCase());
+        if (startIndex == null || endIndex == null) {
+            return null;
+        }
+        List<Integer> path = MazeGraph.bidirectionalBfs(graph, startIndex, endIndex);
+        if (path.isEmpty()) {
+            return null;
+        }
+        List<String> sequence = new ArrayList<String>(path.size());
+        for (int i : path) {
+            sequence.add(wordsList.get(i));
+        }
+        return sequence;
+    }
+
     /**
      * This helper method cleans out a sequence by removing redundant entries.
      * For example, the sequence (BOAT, GOAT, MOAT, COAT, CHAT) would get
@@ -193,27 +251,24 @@ public class FourLetterFrenzy {
      * @return
      */
     public Map<String, Set<String>> analyzeOrbits() {
-        Set<String> visited = new HashSet<String>();
+        if (graph == null) {
+            buildGraph();
+        }
+        // each orbit is labeled with its first word in the list, the smallest node in its component
+        ConnectedComponents components = new ConnectedComponents(graph, Runtime.getRuntime().availableProcessors());
         Map<String, Set<String>> orbits = new HashMap<String, Set<String>>();
-        Queue<String> queue = new ArrayDeque<String>();
-        for (String s : wordsList) {
-            if (!visited.contains(s) && queue.isEmpty()) {
-                queue.add(s);
-                Set<String> set = new HashSet<String>();
-                while (!queue.isEmpty()) {
-                    String string = queue.poll();
-                    visited.add(string);
-                    set.add(string);
-                    if (map.containsKey(string)) {
-                        for (String next : map.get(string)) {
-                            if (!visited.contains(next)) {
-                                queue.add(next);
-                            }
-                        }
-                    }
-                }
-                orbits.put(s, set);
-                if (set.size() > wordsList.size() / 2) {
+        for (int i=0; i<wordsList.size(); i++) {
+            String root = wordsList.get(components.getLabel(i));
+            if (!orbits.containsKey(root)) {
+                orbits.put(root, new HashSet<String>());
+            }
+            orbits.get(root).add(wordsList.get(i));
+        }
+        int[] sizes = components.getComponentSizes();
+        for (int i=0; i<wordsList.size(); i++) {
+            if (components.getLabel(i) == i) {
+                Set<String> set = orbits.get(wordsList.get(i));
+                if (sizes[i] > wordsList.size() / 2) {
                     System.out.println("Big Orbit:");
                     System.out.println("==> " + set.size() + "\n");
                 } else {
@@ -238,6 +293,7 @@ public class FourLetterFrenzy {
     public static void main(String[] args) {
         FourLetterFrenzy flf = new FourLetterFrenzy("fourletterwords.txt");
         printCollection(flf.sequenceSearch("jynx", "zurf"));
+        printCollection(flf.bidirectionalSearch("jynx", "zurf"));
 //        flf.analyzeOrbits();
     }
 }
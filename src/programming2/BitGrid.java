@@ -0,0 +1,95 @@
+package programming2;
+
+/**
+ * A rectangular grid of open and closed squares, packed one bit per square.  Each row starts
+ * on a fresh long, so a row is the contiguous run of longs words[row * wordsPerRow] through
+ * words[(row + 1) * wordsPerRow - 1], with column c in bit (c % 64) of the (c / 64)th long.
+ * Squares outside the grid count as closed.
+ *
+ * Squares are also numbered by cell index, row * cols + col, which stays fixed when squares
+ * open and close.
+ */
+public class BitGrid {
+    private final int rows;
+    private final int cols;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    /**
+     * Makes a grid with every square closed
+     */
+    public BitGrid(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        wordsPerRow = (cols + 63) >>> 6;
+        words = new long[rows * wordsPerRow];
+    }
+
+    /**
+     * Returns a copy of the grid, which can be changed without changing this one
+     */
+    public BitGrid copy() {
+        BitGrid copy = new BitGrid(rows, cols);
+        System.arraycopy(words, 0, copy.words, 0, words.length);
+        return copy;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Returns the backing array of the grid, for algorithms that work on whole words at a time.
+     * Changes to the array change the grid.  Bits past the last column must stay clear.
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * Returns true if the square is inside the grid and open
+     */
+    public boolean isOpen(int row, int col) {
+        return (0 <= row) && (row < rows) && (0 <= col) && (col < cols)
+                && (words[row * wordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    /**
+     * Opens or closes a square.  Squares outside the grid are ignored.
+     */
+    public void setOpen(int row, int col, boolean open) {
+        if ((0 <= row) && (row < rows) && (0 <= col) && (col < cols)) {
+            if (open) {
+                words[row * wordsPerRow + (col >>> 6)] |= 1L << col;
+            } else {
+                words[row * wordsPerRow + (col >>> 6)] &= ~(1L << col);
+            }
+        }
+    }
+
+    /**
+     * Returns the cell index of a square
+     */
+    public int cell(int row, int col) {
+        return row * cols + col;
+    }
+
+    /**
+     * Returns the number of open squares
+     */
+    public int countOpen() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,232 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The connected components of a graph, found with union-find over its edges, so that whether
+ * two nodes are connected at all can be checked in O(1) before running any search.  Arcs are
+ * treated as undirected, so for a directed graph these are its weakly connected components.
+ *
+ * Every component is labeled with its smallest node.  A union always links the larger root
+ * under the smaller one, so the root of each tree is already that node, and the labels do not
+ * depend on the order in which edges are merged, or on the number of threads.
+ *
+ * The parallel mode splits the nodes into blocks, one per thread, and merges the edges of all
+ * blocks into one shared forest at once.  Links are made by compare-and-set on the parent of a
+ * root, which fails and is retried if another thread linked that root first, and finds halve
+ * their paths with compare-and-set as well, so no locks are needed.
+ */
+public class ConnectedComponents {
+    private final int[] labels;
+    private final int count;
+
+    /**
+     * Finds the components of the graph on the calling thread
+     */
+    public ConnectedComponents(Graph graph) {
+        this(graph, 1);
+    }
+
+    /**
+     * Finds the components of the graph on a pool of the given number of threads, or on the
+     * calling thread if it is 1
+     */
+    public ConnectedComponents(Graph graph, int threads) {
+        labels = threads > 1 ? parallelLabels(graph, threads) : sequentialLabels(graph);
+        int roots = 0;
+        for (int node = 0; node < labels.length; node++) {
+            if (labels[node] == node) {
+                roots++;
+            }
+        }
+        count = roots;
+    }
+
+    /**
+     * Returns the label of the node's component, the smallest node in it
+     */
+    public int getLabel(int node) {
+        return labels[node];
+    }
+
+    /**
+     * Returns the label of every node.  The array belongs to this object and must not be changed.
+     */
+    public int[] getLabels() {
+        return labels;
+    }
+
+    public int getComponentCount() {
+        return count;
+    }
+
+    /**
+     * Checks in O(1) whether there is any path between the two nodes
+     */
+    public boolean sameComponent(int node1, int node2) {
+        return labels[node1] == labels[node2];
+    }
+
+    /**
+     * Returns the number of nodes in each component, indexed by label
+     */
+    public int[] getComponentSizes() {
+        int[] sizes = new int[labels.length];
+        for (int label : labels) {
+            sizes[label]++;
+        }
+        return sizes;
+    }
+
+    private static int[] sequentialLabels(Graph graph) {
+        int size = graph.getSize();
+        int[] parents = new int[size];
+        for (int node = 0; node < size; node++) {
+            parents[node] = node;
+        }
+        NeighborCursor cursor = graph.newCursor();
+        for (int node = 0; node < size; node++) {
+            for (cursor.reset(node); cursor.hasNext(); ) {
+                int root1 = find(parents, node);
+                int root2 = find(parents, cursor.next());
+                if (root1 < root2) {
+                    parents[root2] = root1;
+                } else if (root2 < root1) {
+                    parents[root1] = root2;
+                }
+            }
+        }
+        // each parent is smaller than its child, so one pass in order flattens every tree
+        for (int node = 0; node < size; node++) {
+            parents[node] = parents[parents[node]];
+        }
+        return parents;
+    }
+
+    private static int find(int[] parents, int node) {
+        while (parents[node] != node) {
+            parents[node] = parents[parents[node]];
+            node = parents[node];
+        }
+        return node;
+    }
+
+    private static int[] parallelLabels(final Graph graph, int threads) {
+        final int size = graph.getSize();
+        final AtomicIntegerArray parents = new AtomicIntegerArray(size);
+        for (int node = 0; node < size; node++) {
+            parents.set(node, node);
+        }
+        final int[] labels = new int[size];
+        final int blockSize = (size + threads - 1) / threads;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> unions = new ArrayList<Callable<Void>>(threads);
+            List<Callable<Void>> flattens = new ArrayList<Callable<Void>>(threads);
+            for (int t = 0; t < threads; t++) {
+                final int first = Math.min(t * blockSize, size);
+                final int last = Math.min(first + blockSize, size);
+                unions.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        NeighborCursor cursor = graph.newCursor();
+                        for (int node = first; node < last; node++) {
+                            for (cursor.reset(node); cursor.hasNext(); ) {
+                                union(parents, node, cursor.next());
+                            }
+                        }
+                        return null;
+                    }
+                });
+                flattens.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int node = first; node < last; node++) {
+                            labels[node] = find(parents, node);
+                        }
+                        return null;
+                    }
+                });
+            }
+            // every union must be done before any label is read
+            for (Future<Void> future : pool.invokeAll(unions)) {
+                future.get();
+            }
+            for (Future<Void> future : pool.invokeAll(flattens)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return labels;
+    }
+
+    private static void union(AtomicIntegerArray parents, int node1, int node2) {
+        while (true) {
+            int root1 = find(parents, node1);
+            int root2 = find(parents, node2);
+            if (root1 == root2) {
+                return;
+            }
+            int low = Math.min(root1, root2);
+            int high = Math.max(root1, root2);
+            // only succeeds if high is still a root; otherwise find its new root and try again
+            if (parents.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+    private static int find(AtomicIntegerArray parents, int node) {
+        while (true) {
+            int parent = parents.get(node);
+            if (parent == node) {
+                return node;
+            }
+            int grandparent = parents.get(parent);
+            if (grandparent != parent) {
+                // path halving; losing the race to another thread is harmless
+                parents.compareAndSet(node, parent, grandparent);
+            }
+            node = grandparent;
+        }
+    }
+
+    /**
+     * Labels the components of a large random maze sequentially and on every core, and checks
+     * that the labels agree.
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Graph graph = MazeGraph.mazeToGraph(MazeBenchmark.randomMaze(size, 0.4, 1), true).graph;
+        long start = System.currentTimeMillis();
+        ConnectedComponents sequential = new ConnectedComponents(graph);
+        long sequentialTime = System.currentTimeMillis() - start;
+        start = System.currentTimeMillis();
+        ConnectedComponents parallel = new ConnectedComponents(graph, Math.max(2, threads));
+        long parallelTime = System.currentTimeMillis() - start;
+        int largest = 0;
+        for (int componentSize : sequential.getComponentSizes()) {
+            largest = Math.max(largest, componentSize);
+        }
+        System.out.println(graph.getSize() + " nodes, " + sequential.getComponentCount()
+                + " components, the largest with " + largest + " nodes");
+        System.out.println("Sequential: " + sequentialTime + " ms");
+        System.out.println("Parallel (" + Math.max(2, threads) + " threads): " + parallelTime + " ms");
+        System.out.println("Labels agree: " + Arrays.equals(sequential.getLabels(), parallel.getLabels()));
+    }
+}
@@ -0,0 +1,284 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable graph stored in compressed sparse row (CSR) form.  The neighbors of node i are
+ * targets[offsets[i]] through targets[offsets[i+1] - 1], sorted in increasing order with no
+ * duplicates, so neighbor scans are sequential reads of a primitive array and the iteration
+ * order matches ListGraph.  A graph with n nodes and m stored arcs takes 4(n + 1) + 4m bytes.
+ *
+ * Graphs are built in bulk with a Builder, which collects edges into flat int arrays and then
+ * sorts and deduplicates them.  Since the graph is immutable, addEdge throws an exception.
+ */
+public class CsrGraph implements Graph {
+    private final int[] offsets;   // offsets[i] is the index in targets of node i's first neighbor
+    private final int[] targets;   // the neighbor lists of every node, concatenated
+    private final int nodes;       // the number of nodes in the graph
+
+    private CsrGraph(int nodes, int[] offsets, int[] targets) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Copies any other graph into CSR form.
+     */
+    public static CsrGraph copyOf(Graph graph) {
+        int size = graph.getSize();
+        Builder builder = new Builder(size);
+        NeighborCursor cursor = graph.newCursor();
+        for (int i=0; i<size; i++) {
+            for (cursor.reset(i); cursor.hasNext(); ) {
+                builder.addArc(i, cursor.next());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * CSR graphs are immutable, so this always throws an UnsupportedOperationException.
+     * Use a Builder instead.
+     */
+    @Override
+    public void addEdge(int fromNode, int toNode) {
+        throw new UnsupportedOperationException("CsrGraph is immutable; use CsrGraph.Builder");
+    }
+
+    @Override
+    public int getSize() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of arcs stored in the graph.  Every undirected edge counts twice.
+     */
+    public int getArcCount() {
+        return targets.length;
+    }
+
+    @Override
+    public List<Integer> getNeighbors(int node) {
+        List<Integer> neighbors = new ArrayList<Integer>();
+        if ((0 <= node) && (node < nodes)) {
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                neighbors.add(targets[i]);
+            }
+        }
+        return neighbors;
+    }
+
+    /**
+     * Binary searches the sorted neighbor list of node1 for node2.
+     */
+    @Override
+    public boolean areNeighbors(int node1, int node2) {
+        return (0 <= node1) && (node1 < nodes) && (0 <= node2) && (node2 < nodes)
+                && Arrays.binarySearch(targets, offsets[node1], offsets[node1 + 1], node2) >= 0;
+    }
+
+    @Override
+    public int degree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    @Override
+    public void forEachNeighbor(int node, IntConsumer action) {
+        for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+            action.accept(targets[i]);
+        }
+    }
+
+    @Override
+    public NeighborCursor newCursor() {
+        return new NeighborCursor() {
+            private int index;
+            private int end;
+
+            @Override
+            public NeighborCursor reset(int node) {
+                index = offsets[node];
+                end = offsets[node + 1];
+                return this;
+            }
+
+            @Override
+            public NeighborCursor reset(int node, int position) {
+                index = position;
+                end = offsets[node + 1];
+                return this;
+            }
+
+            @Override
+            public int position() {
+                return index;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < end;
+            }
+
+            @Override
+            public int next() {
+                return targets[index++];
+            }
+        };
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the adjacency arrays.
+     */
+    public long memoryBytes() {
+        return 4L * offsets.length + 4L * targets.length;
+    }
+
+    /**
+     * Collects edges for a CsrGraph.  Edges are appended to flat int arrays in any order,
+     * and build() sorts them by source, then target, and removes duplicates and self loops.
+     * Like the other graphs, bad input (nodes out of range) is silently ignored.
+     */
+    public static class Builder {
+        private final int nodes;
+        private int[] from;
+        private int[] to;
+        private int arcs;
+
+        public Builder(int nodes) {
+            this(nodes, 16);
+        }
+
+        /**
+         * Creates a builder with room for the given number of arcs before it has to grow.
+         */
+        public Builder(int nodes, int expectedArcs) {
+            this.nodes = nodes;
+            from = new int[Math.max(expectedArcs, 16)];
+            to = new int[from.length];
+            arcs = 0;
+        }
+
+        /**
+         * Adds an undirected edge, stored as an arc in each direction.
+         */
+        public Builder addEdge(int fromNode, int toNode) {
+            addArc(fromNode, toNode);
+            addArc(toNode, fromNode);
+            return this;
+        }
+
+        /**
+         * Adds a single directed arc.
+         */
+        public Builder addArc(int fromNode, int toNode) {
+            if ((0 <= fromNode) && (fromNode < nodes) && (0 <= toNode) && (toNode < nodes) && fromNode != toNode) {
+                if (arcs == from.length) {
+                    int newLength = from.length + (from.length >> 1);
+                    from = Arrays.copyOf(from, newLength);
+                    to = Arrays.copyOf(to, newLength);
+                }
+                from[arcs] = fromNode;
+                to[arcs] = toNode;
+                arcs++;
+            }
+            return this;
+        }
+
+        /**
+         * Builds the graph.  Arcs are bucketed by source with a counting sort, then each
+         * neighbor list is sorted and compacted in place, so this runs in O(n + m log d)
+         * time for maximum degree d.  The builder can be discarded afterwards.
+         */
+        public CsrGraph build() {
+            int[] offsets = new int[nodes + 1];
+            for (int i=0; i<arcs; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int i=0; i<nodes; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] targets = new int[arcs];
+            int[] next = Arrays.copyOf(offsets, nodes);
+            for (int i=0; i<arcs; i++) {
+                targets[next[from[i]]++] = to[i];
+            }
+            from = null;
+            to = null;
+            // sort and deduplicate each neighbor list, compacting toward the front
+            int write = 0;
+            int start = 0;
+            for (int i=0; i<nodes; i++) {
+                int end = offsets[i + 1];
+                sort(targets, start, end);
+                offsets[i] = write;
+                for (int j=start; j<end; j++) {
+                    if (j == start || targets[j] != targets[j - 1]) {
+                        targets[write++] = targets[j];
+                    }
+                }
+                start = end;
+            }
+            offsets[nodes] = write;
+            if (write < targets.length) {
+                targets = Arrays.copyOf(targets, write);
+            }
+            return new CsrGraph(nodes, offsets, targets);
+        }
+
+        /**
+         * Sorts a range of the array.  Most neighbor lists are short, so those are
+         * insertion sorted, which avoids the overhead of a general-purpose sort.
+         */
+        private static void sort(int[] array, int start, int end) {
+            if (end - start > 16) {
+                Arrays.sort(array, start, end);
+            } else {
+                for (int i = start + 1; i < end; i++) {
+                    int value = array[i];
+                    int j = i - 1;
+                    while (j >= start && array[j] > value) {
+                        array[j + 1] = array[j];
+                        j--;
+                    }
+                    array[j + 1] = value;
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        // A test example, the same graph as ListGraph's
+        CsrGraph sg = new Builder(4)
+                .addEdge(0, 1)
+                .addEdge(0, 2)
+                .addEdge(0, 3)
+                .addEdge(1, 2)
+                .addEdge(2, 3)
+                .addEdge(2, 0) // duplicate, removed by build()
+                .build();
+
+        int n = sg.getSize();
+        for (int i = 0; i < n; i++) {
+            System.out.println("Node " + i + ":");
+            System.out.println("is a neighbor of node 3:" + sg.areNeighbors(i, 3));
+            for (int neighbor : sg.getNeighbors(i)) {
+                System.out.print(neighbor + " ");
+            }
+            System.out.println();
+        }
+
+        // Compare against ListGraph on the bundled mazes
+        for (String mazeFile : args) {
+            MazeGraph.ProcessedGraph listMaze = MazeGraph.mazeToGraph(MazeGraph.readMaze(mazeFile));
+            CsrGraph csr = copyOf(listMaze.graph);
+            MazeGraph.ProcessedGraph csrMaze = new MazeGraph.ProcessedGraph(listMaze.startNode, listMaze.goalNode, csr);
+            System.out.println(mazeFile + ": " + csr.getSize() + " nodes, " + csr.getArcCount() + " arcs, "
+                    + csr.memoryBytes() + " bytes");
+            System.out.println("BFS agrees: " + MazeGraph.bfs(listMaze).equals(MazeGraph.bfs(csrMaze)));
+        }
+    }
+}
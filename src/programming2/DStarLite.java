@@ -0,0 +1,242 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Incremental shortest paths on a DynamicMaze with D* Lite (Koenig and Likhachev, 2002).
+ *
+ * The planner searches backwards from the goal, keeping for every square g, its distance to the
+ * goal as of the last search, and rhs, the distance its neighbors' g values imply.  A square
+ * whose two values differ is inconsistent, and waits in a priority queue.  When a square opens
+ * or closes, only it and its neighbors are re-examined, and the next search only expands the
+ * inconsistent squares that could change the path from the start, so the work after an update
+ * is proportional to the part of the maze whose distances it changes, not the whole maze.
+ *
+ * Keys are the usual pair [min(g, rhs) + h + km, min(g, rhs)], packed into a long, where h is
+ * the Manhattan distance to the start and km grows as the start moves, so the keys already in
+ * the queue stay valid without being recomputed.
+ *
+ * Paths are lists of cell indices, row * cols + col, from start to goal, since node numbers
+ * change as squares open and close.  GridGraph.getNode converts them for a snapshot of the maze.
+ */
+public class DStarLite {
+    private static final int INF = Integer.MAX_VALUE / 4;
+    // directions: up, left, right, down, the same preference as the other maze searches
+    private static final int[] ROW_STEPS = {-1, 0, 0, 1};
+    private static final int[] COL_STEPS = {0, -1, 1, 0};
+
+    private final DynamicMaze maze;
+    private final BitGrid grid;
+    private final int cols;
+    private final int goal;
+    private final int[] g;
+    private final int[] rhs;
+    private final IndexedMinHeap open;
+    private int km = 0;
+    private int expanded;
+
+    /**
+     * Makes a planner for the maze, which from then on keeps it up to date with every change
+     */
+    public DStarLite(DynamicMaze maze) {
+        this.maze = maze;
+        grid = maze.getGrid();
+        cols = grid.getCols();
+        goal = maze.getGoalCell();
+        int cells = grid.getRows() * cols;
+        g = new int[cells];
+        rhs = new int[cells];
+        Arrays.fill(g, INF);
+        Arrays.fill(rhs, INF);
+        open = new IndexedMinHeap(cells);
+        rhs[goal] = 0;
+        open.add(goal, key(goal));
+        maze.addPlanner(this);
+    }
+
+    /**
+     * Returns the number of squares expanded by the last call to getPath, which after an
+     * update is the number of squares that had to be re-expanded to repair the path
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Brings the search up to date with every change since the last call, and returns a
+     * shortest path from the start to the goal as cell indices, or an empty list if there is none.
+     */
+    public List<Integer> getPath() {
+        int start = maze.getStartCell();
+        expanded = 0;
+        computeShortestPath(start);
+        List<Integer> path = new ArrayList<Integer>();
+        if (!grid.isOpen(start / cols, start % cols) || g[start] >= INF) {
+            return path;
+        }
+        path.add(start);
+        // walk down the g values, which drop by one with every step toward the goal, so the
+        // walk ends within g[start] steps
+        int current = start;
+        while (current != goal) {
+            int row = current / cols;
+            int col = current % cols;
+            int next = -1;
+            for (int dir = 0; dir < 4; dir++) {
+                int r = row + ROW_STEPS[dir];
+                int c = col + COL_STEPS[dir];
+                if (grid.isOpen(r, c) && (next == -1 || g[grid.cell(r, c)] < g[next])) {
+                    next = grid.cell(r, c);
+                }
+            }
+            // g must strictly drop with each step, or an inconsistent square could loop forever
+            if (next == -1 || g[next] >= g[current]) {
+                return new ArrayList<Integer>();
+            }
+            current = next;
+            path.add(current);
+        }
+        return path;
+    }
+
+    /**
+     * Called by the maze when a square opens or closes.  Every edge of the square changed, so
+     * the square and its neighbors get new rhs values.
+     */
+    void cellChanged(int cell) {
+        int row = cell / cols;
+        int col = cell % cols;
+        updateVertex(cell);
+        for (int dir = 0; dir < 4; dir++) {
+            int r = row + ROW_STEPS[dir];
+            int c = col + COL_STEPS[dir];
+            if (0 <= r && r < grid.getRows() && 0 <= c && c < cols) {
+                updateVertex(grid.cell(r, c));
+            }
+        }
+    }
+
+    /**
+     * Called by the maze when the start moves.  Every key in the queue was computed with the old
+     * start, and could now be too high by up to the distance moved, so km grows by that much.
+     */
+    void startMoved(int oldStart, int newStart) {
+        km += distance(oldStart, newStart);
+    }
+
+    private void computeShortestPath(int start) {
+        while (!open.isEmpty() && (open.peekKey() < key(start) || rhs[start] != g[start])) {
+            int u = open.peek();
+            long oldKey = open.peekKey();
+            long newKey = key(u);
+            if (oldKey < newKey) {
+                open.update(u, newKey);
+            } else if (g[u] > rhs[u]) {
+                // overconsistent: the square got closer, so settle it and pass it on
+                g[u] = rhs[u];
+                open.remove(u);
+                expanded++;
+                updateNeighbors(u);
+            } else {
+                // underconsistent: the square got farther, so reset it and everything that used it
+                g[u] = INF;
+                expanded++;
+                updateVertex(u);
+                updateNeighbors(u);
+            }
+        }
+    }
+
+    private void updateNeighbors(int cell) {
+        int row = cell / cols;
+        int col = cell % cols;
+        for (int dir = 0; dir < 4; dir++) {
+            int r = row + ROW_STEPS[dir];
+            int c = col + COL_STEPS[dir];
+            if (grid.isOpen(r, c)) {
+                updateVertex(grid.cell(r, c));
+            }
+        }
+    }
+
+    /**
+     * Recomputes the rhs value of a square from its open neighbors, and puts it in the queue
+     * if that makes it inconsistent, or takes it out if it is consistent again
+     */
+    private void updateVertex(int cell) {
+        if (cell != goal) {
+            int best = INF;
+            int row = cell / cols;
+            int col = cell % cols;
+            if (grid.isOpen(row, col)) {
+                for (int dir = 0; dir < 4; dir++) {
+                    int r = row + ROW_STEPS[dir];
+                    int c = col + COL_STEPS[dir];
+                    if (grid.isOpen(r, c)) {
+                        best = Math.min(best, g[grid.cell(r, c)] + 1);
+                    }
+                }
+            }
+            rhs[cell] = Math.min(best, INF);
+        }
+        if (g[cell] != rhs[cell]) {
+            if (open.contains(cell)) {
+                open.update(cell, key(cell));
+            } else {
+                open.add(cell, key(cell));
+            }
+        } else {
+            open.remove(cell);
+        }
+    }
+
+    private long key(int cell) {
+        int min = Math.min(g[cell], rhs[cell]);
+        return ((long) (min + distance(maze.getStartCell(), cell) + km) << 32) | min;
+    }
+
+    private int distance(int cell1, int cell2) {
+        return Math.abs(cell1 / cols - cell2 / cols) + Math.abs(cell1 % cols - cell2 % cols);
+    }
+
+    /**
+     * Walks an agent along the path through a maze while random squares near it open and close,
+     * replanning after every change, and checks each path against BFS on a snapshot of the maze.
+     */
+    public static void main(String[] args) {
+        List<String> mazelist = args.length > 0 ? MazeGraph.readMaze(args[0]) : MazeBenchmark.randomMaze(1000, 0.25, 1);
+        DynamicMaze maze = DynamicMaze.fromMaze(mazelist);
+        DStarLite planner = new DStarLite(maze);
+        List<Integer> path = planner.getPath();
+        System.out.println("Initial path length: " + path.size() + ", expanded: " + planner.getExpanded()
+                + " of " + maze.getGrid().countOpen() + " open squares");
+        Random random = new Random(1);
+        BitGrid grid = maze.getGrid();
+        int cols = grid.getCols();
+        long totalExpanded = 0;
+        int updates = 0;
+        boolean agrees = true;
+        while (path.size() > 1 && updates < 200) {
+            // take a step, then change a square somewhere near the agent
+            maze.moveStart(path.get(1) / cols, path.get(1) % cols);
+            int row = maze.getStartCell() / cols + random.nextInt(21) - 10;
+            int col = maze.getStartCell() % cols + random.nextInt(21) - 10;
+            if (row <= 0 || row >= grid.getRows() - 1 || col <= 0 || col >= cols - 1
+                    || grid.cell(row, col) == maze.getStartCell() || grid.cell(row, col) == maze.getGoalCell()) {
+                path = planner.getPath();
+                continue;
+            }
+            maze.setOpen(row, col, !grid.isOpen(row, col));
+            path = planner.getPath();
+            totalExpanded += planner.getExpanded();
+            updates++;
+            MazeGraph.ProcessedGraph snapshot = maze.toProcessedGraph();
+            agrees &= MazeGraph.bfs(snapshot).size() == path.size();
+        }
+        System.out.println("Updates: " + updates + ", average re-expanded per update: " + totalExpanded / Math.max(1, updates));
+        System.out.println("Path lengths agree with BFS: " + agrees);
+    }
+}
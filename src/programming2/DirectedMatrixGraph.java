@@ -2,21 +2,29 @@ package programming2;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * A simple implementation of a graph using an adjacency matrix.  This is an undirected, unweighted
  * graph, with no information associated with nodes in the graph.
+ *
+ * The matrix is stored as a bitset: each row is a long[] with one bit per column, so the graph
+ * takes n^2 / 8 bytes rather than 4 n^2.  Besides the usual Graph methods, whole rows can be
+ * combined with AND and OR 64 columns at a time, for dense algorithms such as coloring and
+ * clique checks.
  */
 class DirectedMatrixGraph implements Graph {
-    protected int[][] matrix;  // the adjacency matrix
+    protected long[][] matrix;  // the adjacency matrix, one bit per entry
     protected int nodes;    // the number of nodes in the graph
+    protected int words;    // the number of longs in each row
 
     /**
      * Constructor takes in the number of nodes, and initializes the adjacency matrix
      */
     public DirectedMatrixGraph(int nodes) {
         this.nodes = nodes;
-        matrix = new int[nodes][nodes];
+        words = (nodes + 63) >>> 6;
+        matrix = new long[nodes][words];
     }
 
     /**
@@ -25,7 +33,7 @@ class DirectedMatrixGraph implements Graph {
      */
     public void addEdge(int fromNode, int toNode) {
         if ((0 <= fromNode) && (fromNode < nodes) && (0 <= toNode) && (toNode < nodes)) {
-            matrix[fromNode][toNode] = 1;
+            matrix[fromNode][toNode >>> 6] |= 1L << toNode;
         }
     }
 
@@ -38,14 +46,15 @@ class DirectedMatrixGraph implements Graph {
     }
 
     /**
-     *
+     * Walks the set bits of the node's row, skipping 64 empty columns at a time
      */
     public List<Integer> getNeighbors(int node) {
         List<Integer> neighbors = new ArrayList<Integer>();
         if ((0 <= node) && (node < nodes)) {
-            for (int i = 0; i < nodes; i++) {
-                if (matrix[node][i] == 1) {
-                    neighbors.add(i);
+            long[] row = matrix[node];
+            for (int w = 0; w < words; w++) {
+                for (long bits = row[w]; bits != 0; bits &= bits - 1) {
+                    neighbors.add((w << 6) + Long.numberOfTrailingZeros(bits));
                 }
             }
         }
@@ -56,7 +65,150 @@ class DirectedMatrixGraph implements Graph {
      * Takes in two nodes, and checks to see if an edge exists between them
      */
     public boolean areNeighbors(int node1, int node2) {
-        return (0 <= node1) && (node1 < nodes) && (0 <= node2) && (node2 < nodes) && (matrix[node1][node2] == 1);
+        return (0 <= node1) && (node1 < nodes) && (0 <= node2) && (node2 < nodes)
+                && (matrix[node1][node2 >>> 6] & (1L << node2)) != 0;
+    }
+
+    public int degree(int node) {
+        int degree = 0;
+        if ((0 <= node) && (node < nodes)) {
+            for (long bits : matrix[node]) {
+                degree += Long.bitCount(bits);
+            }
+        }
+        return degree;
+    }
+
+    public void forEachNeighbor(int node, IntConsumer action) {
+        if ((0 <= node) && (node < nodes)) {
+            long[] row = matrix[node];
+            for (int w = 0; w < words; w++) {
+                for (long bits = row[w]; bits != 0; bits &= bits - 1) {
+                    action.accept((w << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+    }
+
+    public NeighborCursor newCursor() {
+        return new NeighborCursor() {
+            private long[] row;
+            private int word = words;
+            private long bits;  // the bits of the current word not yet returned
+
+            public NeighborCursor reset(int node) {
+                row = matrix[node];
+                word = 0;
+                bits = words > 0 ? row[0] : 0;
+                advance();
+                return this;
+            }
+
+            // the position is the column of the next neighbor, or words * 64 past the end
+            public NeighborCursor reset(int node, int position) {
+                row = matrix[node];
+                word = position >>> 6;
+                bits = word < words ? row[word] & (-1L << position) : 0;
+                advance();
+                return this;
+            }
+
+            public int position() {
+                return word < words ? (word << 6) + Long.numberOfTrailingZeros(bits) : words << 6;
+            }
+
+            public boolean hasNext() {
+                return word < words;
+            }
+
+            public int next() {
+                int neighbor = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                advance();
+                return neighbor;
+            }
+
+            // moves to the next word with a set bit, or past the end of the row if there is none
+            private void advance() {
+                while (bits == 0 && ++word < words) {
+                    bits = row[word];
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of a node's row, as a bitset of its neighbors
+     */
+    public long[] getRow(int node) {
+        return matrix[node].clone();
+    }
+
+    /**
+     * Intersects the given bitset with a node's row, in place.  Afterwards the set
+     * contains only those of its nodes that are neighbors of the given node.
+     */
+    public void andRow(int node, long[] set) {
+        long[] row = matrix[node];
+        for (int w = 0; w < words; w++) {
+            set[w] &= row[w];
+        }
+    }
+
+    /**
+     * Unions a node's row into the given bitset, in place.
+     */
+    public void orRow(int node, long[] set) {
+        long[] row = matrix[node];
+        for (int w = 0; w < words; w++) {
+            set[w] |= row[w];
+        }
+    }
+
+    /**
+     * ORs the row of the source node into the row of the target node, so the target
+     * gains an edge to every neighbor of the source.
+     */
+    public void orRowInto(int targetNode, int sourceNode) {
+        orRow(sourceNode, matrix[targetNode]);
+    }
+
+    /**
+     * Returns the number of nodes that are neighbors of both nodes
+     */
+    public int countCommonNeighbors(int node1, int node2) {
+        long[] row1 = matrix[node1];
+        long[] row2 = matrix[node2];
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(row1[w] & row2[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether every pair of the given distinct nodes is connected.  The nodes are
+     * gathered into a bitset, and each node's row is checked to contain all the others
+     * a word at a time.
+     */
+    public boolean isClique(int... clique) {
+        long[] members = new long[words];
+        for (int node : clique) {
+            members[node >>> 6] |= 1L << node;
+        }
+        for (int node : clique) {
+            long[] row = matrix[node];
+            for (int w = 0; w < words; w++) {
+                long others = members[w];
+                if (w == node >>> 6) {
+                    others &= ~(1L << node);
+                }
+                if ((others & ~row[w]) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     public static void main(String[] args) {
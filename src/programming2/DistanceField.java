@@ -0,0 +1,253 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The distance from every square of a maze to the nearest of a set of source squares, such as
+ * the goal, for steering any number of agents without a search per agent.
+ *
+ * The field is filled by a BFS that works on the BitGrid's words rather than on nodes.  The
+ * frontier is a bit set laid out like the grid, and one level of the search moves all 64
+ * squares of a frontier word at once: shifted left and right within the row, carrying the end
+ * bits into the neighboring words, and copied to the words above and below, then masked with
+ * the open squares not yet visited.  Only words with frontier bits are touched, so a level
+ * costs time in proportion to the frontier, not the grid.
+ *
+ * Distances are kept in a short per square while they fit, and widened to an int once a level
+ * passes Short.MAX_VALUE, as it can in long winding mazes.  Squares no source reaches have
+ * distance -1.
+ */
+public class DistanceField {
+    private final BitGrid grid;
+    private short[] shortDistances;
+    private int[] intDistances;         // null until the distances no longer fit in a short
+    private int maxDistance;
+    private int reached;
+
+    private DistanceField(BitGrid grid) {
+        this.grid = grid;
+        shortDistances = new short[grid.getRows() * grid.getCols()];
+        Arrays.fill(shortDistances, (short) -1);
+    }
+
+    /**
+     * Computes the distance from every square to the nearest of the source squares, given as
+     * cell indices.  Sources that are closed or outside the grid are ignored.
+     */
+    public static DistanceField compute(BitGrid grid, int... sourceCells) {
+        DistanceField field = new DistanceField(grid);
+        field.fill(sourceCells);
+        return field;
+    }
+
+    /**
+     * Computes the distance from every square to the goal of a ProcessedGraph whose graph is a GridGraph
+     */
+    public static DistanceField toGoal(MazeGraph.ProcessedGraph processedGraph) {
+        GridGraph graph = (GridGraph) processedGraph.graph;
+        return compute(graph.getGrid(), graph.getCell(processedGraph.goalNode));
+    }
+
+    /**
+     * Returns the distance from the square with the cell index to the nearest source, or -1 if
+     * no source can reach it
+     */
+    public int getDistance(int cell) {
+        return intDistances != null ? intDistances[cell] : shortDistances[cell];
+    }
+
+    public int getDistance(int row, int col) {
+        return getDistance(grid.cell(row, col));
+    }
+
+    /**
+     * Returns the largest distance of any reached square
+     */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Returns the number of squares reached from the sources, the sources included
+     */
+    public int getReachedCount() {
+        return reached;
+    }
+
+    /**
+     * Returns the neighboring square one step closer to the nearest source, trying up, left,
+     * right and down in that order, or -1 if the square is a source or is not reached
+     */
+    public int nextStep(int cell) {
+        int distance = getDistance(cell);
+        if (distance <= 0) {
+            return -1;
+        }
+        int cols = grid.getCols();
+        int row = cell / cols;
+        int col = cell % cols;
+        if (grid.isOpen(row - 1, col) && getDistance(cell - cols) == distance - 1) {
+            return cell - cols;
+        } else if (grid.isOpen(row, col - 1) && getDistance(cell - 1) == distance - 1) {
+            return cell - 1;
+        } else if (grid.isOpen(row, col + 1) && getDistance(cell + 1) == distance - 1) {
+            return cell + 1;
+        } else {
+            return cell + cols;
+        }
+    }
+
+    /**
+     * Returns the path from the square to the nearest source as cell indices, by following
+     * nextStep, or an empty list if no source reaches it
+     */
+    public List<Integer> pathFrom(int cell) {
+        List<Integer> path = new ArrayList<Integer>();
+        if (getDistance(cell) < 0) {
+            return path;
+        }
+        for (int current = cell; current != -1; current = nextStep(current)) {
+            path.add(current);
+        }
+        return path;
+    }
+
+    private void fill(int[] sourceCells) {
+        int cols = grid.getCols();
+        int wordsPerRow = grid.getWordsPerRow();
+        long[] open = grid.getWords();
+        long[] visited = new long[open.length];
+        long[] frontier = new long[open.length];
+        long[] next = new long[open.length];
+        // the words of frontier and next with any bits set, so a level only visits those
+        int[] active = new int[open.length];
+        int[] nextActive = new int[open.length];
+        boolean[] listed = new boolean[open.length];
+        int activeCount = 0;
+        for (int cell : sourceCells) {
+            int row = cell / cols;
+            int col = cell % cols;
+            if (cell >= 0 && grid.isOpen(row, col)) {
+                int w = row * wordsPerRow + (col >>> 6);
+                if (frontier[w] == 0) {
+                    active[activeCount++] = w;
+                }
+                frontier[w] |= 1L << col;
+            }
+        }
+        for (int i = 0; i < activeCount; i++) {
+            visited[active[i]] = frontier[active[i]];
+            record(active[i], frontier[active[i]], 0);
+        }
+        int level = 0;
+        while (activeCount > 0) {
+            level++;
+            int nextCount = 0;
+            // spread each frontier word to its neighbors in next
+            for (int i = 0; i < activeCount; i++) {
+                int w = active[i];
+                long bits = frontier[w];
+                frontier[w] = 0;
+                int wordCol = w % wordsPerRow;
+                nextCount = spread(next, nextActive, nextCount, listed, w, (bits << 1) | (bits >>> 1) | bits);
+                if (wordCol > 0 && (bits & 1L) != 0) {
+                    nextCount = spread(next, nextActive, nextCount, listed, w - 1, 1L << 63);
+                }
+                if (wordCol < wordsPerRow - 1 && bits < 0) {
+                    nextCount = spread(next, nextActive, nextCount, listed, w + 1, 1L);
+                }
+                if (w >= wordsPerRow) {
+                    nextCount = spread(next, nextActive, nextCount, listed, w - wordsPerRow, bits);
+                }
+                if (w + wordsPerRow < open.length) {
+                    nextCount = spread(next, nextActive, nextCount, listed, w + wordsPerRow, bits);
+                }
+            }
+            // keep the open squares not seen before as the new frontier
+            activeCount = 0;
+            for (int i = 0; i < nextCount; i++) {
+                int w = nextActive[i];
+                long bits = next[w] & open[w] & ~visited[w];
+                next[w] = 0;
+                listed[w] = false;
+                if (bits != 0) {
+                    visited[w] |= bits;
+                    frontier[w] = bits;
+                    active[activeCount++] = w;
+                    record(w, bits, level);
+                }
+            }
+        }
+    }
+
+    private static int spread(long[] next, int[] nextActive, int nextCount, boolean[] listed, int w, long bits) {
+        next[w] |= bits;
+        if (!listed[w]) {
+            listed[w] = true;
+            nextActive[nextCount++] = w;
+        }
+        return nextCount;
+    }
+
+    /**
+     * Stores the level as the distance of each square in a word of newly reached squares
+     */
+    private void record(int w, long bits, int level) {
+        if (level > Short.MAX_VALUE && intDistances == null) {
+            intDistances = new int[shortDistances.length];
+            for (int i = 0; i < shortDistances.length; i++) {
+                intDistances[i] = shortDistances[i];
+            }
+            shortDistances = null;
+        }
+        int cols = grid.getCols();
+        int wordsPerRow = grid.getWordsPerRow();
+        int base = (w / wordsPerRow) * cols + ((w % wordsPerRow) << 6);
+        for (long rest = bits; rest != 0; rest &= rest - 1) {
+            int cell = base + Long.numberOfTrailingZeros(rest);
+            if (intDistances != null) {
+                intDistances[cell] = level;
+            } else {
+                shortDistances[cell] = (short) level;
+            }
+        }
+        maxDistance = level;
+        reached += Long.bitCount(bits);
+    }
+
+    /**
+     * Times the distance field of a large random maze from its goal against a whole-maze BFS
+     * tree over its GridGraph, and checks that the two agree.
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        MazeGraph.ProcessedGraph maze = MazeGraph.mazeToGridGraph(MazeBenchmark.randomMaze(size, 0.3, 1));
+        GridGraph graph = (GridGraph) maze.graph;
+        long start = System.currentTimeMillis();
+        DistanceField field = DistanceField.toGoal(maze);
+        long fieldTime = System.currentTimeMillis() - start;
+        start = System.currentTimeMillis();
+        int[] parents = MazeGraph.bfsTree(graph, maze.goalNode, -1);
+        long bfsTime = System.currentTimeMillis() - start;
+        System.out.println("Distance field: " + fieldTime + " ms, " + field.getReachedCount()
+                + " squares reached, farthest at " + field.getMaxDistance());
+        System.out.println("BFS tree: " + bfsTime + " ms");
+        // every reached node is one step farther than its parent in the BFS tree
+        boolean agrees = true;
+        for (int node = 0; node < graph.getSize(); node++) {
+            int distance = field.getDistance(graph.getCell(node));
+            if (node == maze.goalNode) {
+                agrees &= distance == 0;
+            } else if (parents[node] == -1) {
+                agrees &= distance == -1;
+            } else {
+                agrees &= distance == field.getDistance(graph.getCell(parents[node])) + 1;
+            }
+        }
+        System.out.println("Distances agree with BFS: " + agrees);
+        List<Integer> path = field.pathFrom(graph.getCell(maze.startNode));
+        System.out.println("Path from start: " + path.size() + ", BFS: " + MazeGraph.bfs(maze).size());
+    }
+}
@@ -0,0 +1,99 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A maze whose squares can open and close, and whose start can move, after it is built, for
+ * agents that have to replan as the maze changes around them.  The squares are kept in a
+ * BitGrid, and squares are identified by their cell index, row * cols + col, which unlike the
+ * node numbers of a maze graph does not change when other squares open or close.
+ *
+ * Planners such as DStarLite register with the maze, and are told about every change.
+ */
+public class DynamicMaze {
+    private final BitGrid grid;
+    private int startCell;
+    private final int goalCell;
+    private final List<DStarLite> planners = new ArrayList<DStarLite>();
+
+    public DynamicMaze(BitGrid grid, int startCell, int goalCell) {
+        this.grid = grid;
+        this.startCell = startCell;
+        this.goalCell = goalCell;
+    }
+
+    /**
+     * Builds a dynamic maze from a maze in readMaze's form, or returns null if it has no
+     * start or no goal.
+     */
+    public static DynamicMaze fromMaze(List<String> mazelist) {
+        MazeGraph.ProcessedGraph processedGraph = MazeGraph.mazeToGridGraph(mazelist);
+        if (processedGraph == null) {
+            return null;
+        }
+        GridGraph graph = (GridGraph) processedGraph.graph;
+        return new DynamicMaze(graph.getGrid(), graph.getCell(processedGraph.startNode), graph.getCell(processedGraph.goalNode));
+    }
+
+    public BitGrid getGrid() {
+        return grid;
+    }
+
+    public int getStartCell() {
+        return startCell;
+    }
+
+    public int getGoalCell() {
+        return goalCell;
+    }
+
+    /**
+     * Returns true if the square is inside the maze and open
+     */
+    public boolean isOpen(int row, int col) {
+        return grid.isOpen(row, col);
+    }
+
+    /**
+     * Opens or closes a square, and tells the planners if that changes it
+     */
+    public void setOpen(int row, int col, boolean open) {
+        if (grid.isOpen(row, col) != open && 0 <= row && row < grid.getRows() && 0 <= col && col < grid.getCols()) {
+            grid.setOpen(row, col, open);
+            for (DStarLite planner : planners) {
+                planner.cellChanged(grid.cell(row, col));
+            }
+        }
+    }
+
+    /**
+     * Moves the start, as an agent following a path does, and tells the planners
+     */
+    public void moveStart(int row, int col) {
+        int cell = grid.cell(row, col);
+        if (cell != startCell) {
+            int oldStart = startCell;
+            startCell = cell;
+            for (DStarLite planner : planners) {
+                planner.startMoved(oldStart, cell);
+            }
+        }
+    }
+
+    void addPlanner(DStarLite planner) {
+        planners.add(planner);
+    }
+
+    /**
+     * Returns a snapshot of the maze as it is now, as a GridGraph with its start and goal nodes,
+     * for the static searches in MazeGraph.  Later changes to the maze do not affect it.  If the
+     * start or goal is closed, its node is -1.
+     */
+    public MazeGraph.ProcessedGraph toProcessedGraph() {
+        GridGraph graph = new GridGraph(grid.copy());
+        int cols = grid.getCols();
+        return new MazeGraph.ProcessedGraph(graph.getNode(startCell / cols, startCell % cols),
+                graph.getNode(goalCell / cols, goalCell % cols), graph);
+    }
+}
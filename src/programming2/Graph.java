@@ -1,6 +1,7 @@
 package programming2;
 
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * @author Ari Weiland
@@ -27,4 +28,21 @@ public interface Graph {
      * Takes in two nodes, and checks to see if an edge exists between them
      */
     boolean areNeighbors(int node1, int node2);
+
+    /**
+     * Returns the number of neighbors of a node
+     */
+    int degree(int node);
+
+    /**
+     * Passes each neighbor of a node to the action, in the same order as getNeighbors,
+     * without boxing or building a list.
+     */
+    void forEachNeighbor(int node, IntConsumer action);
+
+    /**
+     * Returns a new cursor over the neighbors of this graph's nodes.  Searches should create
+     * one cursor up front and reset it for every node they visit.
+     */
+    NeighborCursor newCursor();
 }
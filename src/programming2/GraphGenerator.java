@@ -0,0 +1,174 @@
+package programming2;
+
+import java.util.Random;
+
+/**
+ * Seeded generators of large random graphs, for load tests.  The same arguments always give the
+ * same edges, in the same order.
+ *
+ * The generators hold no edges themselves: each edge is handed to an EdgeSink as soon as it is
+ * made, so a graph streams straight into a CsrGraph.Builder, or into a sink that only counts or
+ * hashes the edges, to test with billions of edges that would never fit in memory at once.
+ * Edges are undirected; random edges may repeat, which the builders remove.
+ */
+public class GraphGenerator {
+
+    /**
+     * Receives the edges of a generated graph, one at a time
+     */
+    public interface EdgeSink {
+        void addEdge(int fromNode, int toNode);
+    }
+
+    /**
+     * Returns a sink that adds each edge to the builder
+     */
+    public static EdgeSink into(final CsrGraph.Builder builder) {
+        return new EdgeSink() {
+            public void addEdge(int fromNode, int toNode) {
+                builder.addEdge(fromNode, toNode);
+            }
+        };
+    }
+
+    /**
+     * Returns a count of nodes or arcs as an int, for sizing a builder's arrays, or throws if
+     * it is more than an array can hold
+     */
+    private static int arraySize(long count, String what) {
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A graph of " + count + " " + what + " is more than an array can hold");
+        }
+        return (int) count;
+    }
+
+    /**
+     * Throws unless there are at least two nodes for the edges to join, since edges have no self
+     * loops
+     */
+    private static void checkEdges(int nodes, long edges) {
+        if (edges > 0 && nodes < 2) {
+            throw new IllegalArgumentException("A graph of " + nodes + " nodes has no room for " + edges + " edges");
+        }
+    }
+
+    /**
+     * Generates an Erdos-Renyi random graph: the given number of edges, each between two
+     * different nodes picked uniformly at random
+     */
+    public static void erdosRenyi(int nodes, long edges, long seed, EdgeSink sink) {
+        checkEdges(nodes, edges);
+        Random random = new Random(seed);
+        for (long i = 0; i < edges; i++) {
+            int from = random.nextInt(nodes);
+            int to = random.nextInt(nodes - 1);
+            // skip over from, so that there are no self loops
+            sink.addEdge(from, to < from ? to : to + 1);
+        }
+    }
+
+    /**
+     * Builds an Erdos-Renyi random graph, as above, into a CsrGraph
+     */
+    public static CsrGraph erdosRenyi(int nodes, int edges, long seed) {
+        CsrGraph.Builder builder = new CsrGraph.Builder(nodes, arraySize(2L * edges, "arcs"));
+        erdosRenyi(nodes, edges, seed, into(builder));
+        return builder.build();
+    }
+
+    /**
+     * Generates a random graph whose degrees follow a power law, with the fraction of nodes of
+     * degree d proportional to d^-exponent, like the link graphs of the web or social networks.
+     * This is the Chung-Lu model: both ends of each edge are drawn with probability proportional
+     * to a weight of (i + 1)^(-1 / (exponent - 1)) for node i, so node 0 is the largest hub.  Each
+     * end is drawn in O(1) by inverting the weights' cumulative distribution, so no table of
+     * weights is needed.  The exponent must be more than 2.
+     */
+    public static void powerLaw(int nodes, long edges, double exponent, long seed, EdgeSink sink) {
+        if (exponent <= 2) {
+            throw new IllegalArgumentException("The exponent must be more than 2");
+        }
+        checkEdges(nodes, edges);
+        Random random = new Random(seed);
+        double power = 1 / (1 - 1 / (exponent - 1));
+        for (long i = 0; i < edges; i++) {
+            int from;
+            int to;
+            do {
+                from = (int) Math.min(nodes - 1, nodes * Math.pow(random.nextDouble(), power));
+                to = (int) Math.min(nodes - 1, nodes * Math.pow(random.nextDouble(), power));
+            } while (from == to);
+            sink.addEdge(from, to);
+        }
+    }
+
+    /**
+     * Builds a power-law random graph, as above, into a CsrGraph
+     */
+    public static CsrGraph powerLaw(int nodes, int edges, double exponent, long seed) {
+        CsrGraph.Builder builder = new CsrGraph.Builder(nodes, arraySize(2L * edges, "arcs"));
+        powerLaw(nodes, edges, exponent, seed, into(builder));
+        return builder.build();
+    }
+
+    /**
+     * Generates a rows by cols grid graph, with node row * cols + col joined to the nodes to its
+     * right and below, as in a maze with no walls
+     */
+    public static void grid(int rows, int cols, EdgeSink sink) {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int node = row * cols + col;
+                if (col < cols - 1) {
+                    sink.addEdge(node, node + 1);
+                }
+                if (row < rows - 1) {
+                    sink.addEdge(node, node + cols);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a rows by cols grid graph, as above, into a CsrGraph
+     */
+    public static CsrGraph grid(int rows, int cols) {
+        long cells = (long) rows * cols;
+        CsrGraph.Builder builder = new CsrGraph.Builder(arraySize(cells, "nodes"), arraySize(4 * cells, "arcs"));
+        grid(rows, cols, into(builder));
+        return builder.build();
+    }
+
+    /**
+     * Builds a graph of each kind and prints its size and largest degree, then streams a much
+     * larger random graph into a sink that only counts its edges.
+     */
+    public static void main(String[] args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        String[] names = {"Erdos-Renyi", "Power law (2.5)", "Grid"};
+        for (int kind = 0; kind < names.length; kind++) {
+            long start = System.currentTimeMillis();
+            int side = (int) Math.sqrt(nodes);
+            CsrGraph graph = kind == 0 ? erdosRenyi(nodes, 4 * nodes, 1)
+                    : kind == 1 ? powerLaw(nodes, 4 * nodes, 2.5, 1) : grid(side, side);
+            long elapsed = System.currentTimeMillis() - start;
+            int maxDegree = 0;
+            for (int node = 0; node < graph.getSize(); node++) {
+                maxDegree = Math.max(maxDegree, graph.degree(node));
+            }
+            System.out.println(names[kind] + ": " + graph.getSize() + " nodes, " + graph.getArcCount() / 2
+                    + " edges, largest degree " + maxDegree + ", built in " + elapsed + " ms");
+        }
+        final long[] counts = new long[2];
+        EdgeSink counter = new EdgeSink() {
+            public void addEdge(int fromNode, int toNode) {
+                counts[0]++;
+                counts[1] += fromNode ^ toNode;
+            }
+        };
+        long start = System.currentTimeMillis();
+        erdosRenyi(Integer.MAX_VALUE, 100000000L, 1, counter);
+        System.out.println("Streamed " + counts[0] + " edges over " + Integer.MAX_VALUE + " nodes in "
+                + (System.currentTimeMillis() - start) + " ms without storing them");
+    }
+}
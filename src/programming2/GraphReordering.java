@@ -0,0 +1,210 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A copy of a graph with its nodes renumbered so that neighbors get nearby numbers, which keeps
+ * the marks, parents and neighbor lists a search touches close together in memory.  Mazes are
+ * numbered in row-major order and word graphs in list order, so a BFS frontier on them reads
+ * all over its arrays; after reordering it sweeps through them in order.
+ *
+ * Two orders are offered: plain BFS order, and reverse Cuthill-McKee, a BFS that visits
+ * neighbors from lowest degree to highest and starts each component at a node far from the
+ * rest, then reversed, which keeps the bandwidth, the largest difference between the numbers
+ * of two neighbors, small.
+ *
+ * The reordered graph is a CsrGraph.  The forward map gives the new number of each original
+ * node, and the inverse map the original number of each new node, so queries can be
+ * translated in and paths translated back out.
+ */
+public class GraphReordering {
+    private final CsrGraph graph;
+    private final int[] newIds;     // the new number of each original node
+    private final int[] oldIds;     // the original number of each new node
+
+    /**
+     * Renumbers the graph so that order[i] becomes node i.  The order must list every node once.
+     */
+    public GraphReordering(Graph original, int[] order) {
+        int size = original.getSize();
+        oldIds = order.clone();
+        newIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            newIds[oldIds[i]] = i;
+        }
+        long arcs = 0;
+        for (int node = 0; node < size; node++) {
+            arcs += original.degree(node);
+        }
+        if (arcs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A graph of " + arcs + " arcs is more than an array can hold");
+        }
+        CsrGraph.Builder builder = new CsrGraph.Builder(size, (int) arcs);
+        NeighborCursor cursor = original.newCursor();
+        // add the arcs by new source, so the builder's buckets fill in order
+        for (int i = 0; i < size; i++) {
+            for (cursor.reset(oldIds[i]); cursor.hasNext(); ) {
+                builder.addArc(i, newIds[cursor.next()]);
+            }
+        }
+        graph = builder.build();
+    }
+
+    /**
+     * Renumbers the graph in BFS order from the root, then from the smallest node not yet
+     * reached, and so on for every component
+     */
+    public static GraphReordering bfsOrder(Graph graph, int root) {
+        int size = graph.getSize();
+        int[] order = new int[size];
+        boolean[] marked = new boolean[size];
+        NeighborCursor cursor = graph.newCursor();
+        int tail = 0;
+        for (int next = -1; next < size; next++) {
+            int start = next == -1 ? root : next;
+            if (start < 0 || start >= size || marked[start]) {
+                continue;
+            }
+            int head = tail;
+            order[tail++] = start;
+            marked[start] = true;
+            while (head < tail) {
+                for (cursor.reset(order[head++]); cursor.hasNext(); ) {
+                    int i = cursor.next();
+                    if (!marked[i]) {
+                        marked[i] = true;
+                        order[tail++] = i;
+                    }
+                }
+            }
+        }
+        return new GraphReordering(graph, order);
+    }
+
+    /**
+     * Renumbers the graph in reverse Cuthill-McKee order.  Each component starts from the last
+     * node reached by a BFS from its smallest node, which is far from the rest of it.  In a
+     * directed graph that node may not reach everything the smallest node does, so the search
+     * starts again from each node left over, in the order the first BFS reached them.
+     */
+    public static GraphReordering reverseCuthillMcKee(Graph graph) {
+        int size = graph.getSize();
+        int[] order = new int[size];
+        int[] reached = new int[size];  // the nodes not yet ordered that the root reaches, in BFS order
+        int[] seen = new int[size];     // the component, counting from 1, whose first BFS reached each node
+        boolean[] marked = new boolean[size];
+        long[] neighbors = new long[16];    // degree << 32 | node, for sorting neighbors by degree
+        NeighborCursor cursor = graph.newCursor();
+        int tail = 0;
+        int components = 0;
+        for (int root = 0; root < size; root++) {
+            if (marked[root]) {
+                continue;
+            }
+            // find a node far from the root, among the nodes not ordered yet
+            components++;
+            int head = 0;
+            int end = 0;
+            reached[end++] = root;
+            seen[root] = components;
+            while (head < end) {
+                for (cursor.reset(reached[head++]); cursor.hasNext(); ) {
+                    int i = cursor.next();
+                    if (seen[i] != components && !marked[i]) {
+                        seen[i] = components;
+                        reached[end++] = i;
+                    }
+                }
+            }
+            // then the Cuthill-McKee BFS from there, and from anything it did not reach
+            for (int r = -1; r < end; r++) {
+                int start = reached[r == -1 ? end - 1 : r];
+                if (marked[start]) {
+                    continue;
+                }
+                head = tail;
+                order[tail++] = start;
+                marked[start] = true;
+                while (head < tail) {
+                    int count = 0;
+                    for (cursor.reset(order[head++]); cursor.hasNext(); ) {
+                        int i = cursor.next();
+                        if (!marked[i]) {
+                            marked[i] = true;
+                            if (count == neighbors.length) {
+                                neighbors = Arrays.copyOf(neighbors, count * 2);
+                            }
+                            neighbors[count++] = ((long) graph.degree(i) << 32) | i;
+                        }
+                    }
+                    Arrays.sort(neighbors, 0, count);
+                    for (int j = 0; j < count; j++) {
+                        order[tail++] = (int) neighbors[j];
+                    }
+                }
+            }
+        }
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+        return new GraphReordering(graph, order);
+    }
+
+    /**
+     * Returns the largest difference between the numbers of two neighbors in the graph
+     */
+    public static int bandwidth(Graph graph) {
+        int bandwidth = 0;
+        NeighborCursor cursor = graph.newCursor();
+        for (int node = 0; node < graph.getSize(); node++) {
+            for (cursor.reset(node); cursor.hasNext(); ) {
+                bandwidth = Math.max(bandwidth, Math.abs(cursor.next() - node));
+            }
+        }
+        return bandwidth;
+    }
+
+    /**
+     * Returns the reordered graph
+     */
+    public CsrGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the new number of an original node
+     */
+    public int getNewId(int node) {
+        return newIds[node];
+    }
+
+    /**
+     * Returns the original number of a new node
+     */
+    public int getOldId(int node) {
+        return oldIds[node];
+    }
+
+    /**
+     * Returns the reordered version of a ProcessedGraph over the original graph, with its start
+     * and goal renumbered, for running MazeGraph's searches on
+     */
+    public MazeGraph.ProcessedGraph translate(MazeGraph.ProcessedGraph processedGraph) {
+        return new MazeGraph.ProcessedGraph(newIds[processedGraph.startNode], newIds[processedGraph.goalNode], graph);
+    }
+
+    /**
+     * Translates a path through the reordered graph back to the original node numbers
+     */
+    public List<Integer> toOriginal(List<Integer> path) {
+        List<Integer> original = new ArrayList<Integer>(path.size());
+        for (int node : path) {
+            original.add(oldIds[node]);
+        }
+        return original;
+    }
+}
@@ -0,0 +1,249 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * A maze graph that is computed on the fly from a BitGrid of open squares, instead of being
+ * stored as adjacency lists.  Every open square is a node, with an edge to each open square
+ * immediately above, left, right or below it.
+ *
+ * Nodes are numbered in row-major order among the open squares, exactly as in
+ * MazeGraph.mazeToGraph, so searches return the same paths on either graph.  To convert
+ * between node numbers and squares, the graph keeps the number of open squares before each
+ * long of the grid.  A node's square is found by binary searching those counts, and a
+ * square's node by counting the bits before it in its long.  The whole graph takes about
+ * 1.5 bits per square of the grid.
+ *
+ * The graph is immutable, so addEdge throws an exception.  The grid must not be changed
+ * while the graph is in use.
+ */
+public class GridGraph implements Graph {
+    private final BitGrid grid;
+    private final long[] words;
+    private final int wordsPerRow;
+    private final int[] ranks;  // ranks[w] is the number of open squares before words[w]
+    private final int nodes;
+
+    public GridGraph(BitGrid grid) {
+        this.grid = grid;
+        words = grid.getWords();
+        wordsPerRow = grid.getWordsPerRow();
+        ranks = new int[words.length + 1];
+        for (int w = 0; w < words.length; w++) {
+            ranks[w + 1] = ranks[w] + Long.bitCount(words[w]);
+        }
+        nodes = ranks[words.length];
+    }
+
+    public BitGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Returns the node number of an open square, or -1 if it is closed or outside the grid
+     */
+    public int getNode(int row, int col) {
+        if (!grid.isOpen(row, col)) {
+            return -1;
+        }
+        int w = row * wordsPerRow + (col >>> 6);
+        return ranks[w] + Long.bitCount(words[w] & ((1L << col) - 1));
+    }
+
+    /**
+     * Returns the node number of the open square at the given position, or -1
+     */
+    public int getNode(MazeGraph.Position position) {
+        return getNode(position.x, position.y);
+    }
+
+    /**
+     * Returns the position of a node's square, with x the row and y the column
+     */
+    public MazeGraph.Position getPosition(int node) {
+        int bit = bitOf(node);
+        return new MazeGraph.Position(bit / (wordsPerRow << 6), bit % (wordsPerRow << 6));
+    }
+
+    /**
+     * Returns the row of a node's square
+     */
+    public int getRow(int node) {
+        return bitOf(node) / (wordsPerRow << 6);
+    }
+
+    /**
+     * Returns the column of a node's square
+     */
+    public int getCol(int node) {
+        return bitOf(node) % (wordsPerRow << 6);
+    }
+
+    /**
+     * Returns the cell index (row * cols + col) of a node's square
+     */
+    public int getCell(int node) {
+        int bit = bitOf(node);
+        return grid.cell(bit / (wordsPerRow << 6), bit % (wordsPerRow << 6));
+    }
+
+    /**
+     * Returns a heuristic giving the Manhattan distance between the squares of two nodes
+     */
+    public Heuristic manhattan() {
+        return new Heuristic() {
+            @Override
+            public int estimate(int node, int goal) {
+                int bit1 = bitOf(node);
+                int bit2 = bitOf(goal);
+                int rowBits = wordsPerRow << 6;
+                return Math.abs(bit1 / rowBits - bit2 / rowBits) + Math.abs(bit1 % rowBits - bit2 % rowBits);
+            }
+        };
+    }
+
+    /**
+     * Finds the position of a node's bit in the grid: the word holding it is the last one
+     * with fewer open squares before it than the node number, and within that word it is
+     * the (node - rank)th set bit.
+     */
+    private int bitOf(int node) {
+        int low = 0;
+        int high = words.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (ranks[mid] <= node) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        long word = words[low];
+        for (int k = node - ranks[low]; k > 0; k--) {
+            word &= word - 1;
+        }
+        return (low << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Grid graphs are computed from the grid, so this always throws an
+     * UnsupportedOperationException.  Open squares in the grid instead.
+     */
+    @Override
+    public void addEdge(int fromNode, int toNode) {
+        throw new UnsupportedOperationException("GridGraph edges come from its BitGrid");
+    }
+
+    @Override
+    public int getSize() {
+        return nodes;
+    }
+
+    @Override
+    public List<Integer> getNeighbors(int node) {
+        List<Integer> neighbors = new ArrayList<Integer>(4);
+        if ((0 <= node) && (node < nodes)) {
+            for (NeighborCursor cursor = newCursor().reset(node); cursor.hasNext(); ) {
+                neighbors.add(cursor.next());
+            }
+        }
+        return neighbors;
+    }
+
+    @Override
+    public boolean areNeighbors(int node1, int node2) {
+        if ((0 <= node1) && (node1 < nodes) && (0 <= node2) && (node2 < nodes)) {
+            int bit1 = bitOf(node1);
+            int bit2 = bitOf(node2);
+            int rowBits = wordsPerRow << 6;
+            int rowDistance = Math.abs(bit1 / rowBits - bit2 / rowBits);
+            int colDistance = Math.abs(bit1 % rowBits - bit2 % rowBits);
+            return rowDistance + colDistance == 1;
+        }
+        return false;
+    }
+
+    @Override
+    public int degree(int node) {
+        int degree = 0;
+        for (NeighborCursor cursor = newCursor().reset(node); cursor.hasNext(); cursor.next()) {
+            degree++;
+        }
+        return degree;
+    }
+
+    @Override
+    public void forEachNeighbor(int node, IntConsumer action) {
+        for (NeighborCursor cursor = newCursor().reset(node); cursor.hasNext(); ) {
+            action.accept(cursor.next());
+        }
+    }
+
+    /**
+     * The cursor finds the node's square once, then looks up the squares above, left,
+     * right and below it in that order, which is increasing node order.
+     */
+    @Override
+    public NeighborCursor newCursor() {
+        return new NeighborCursor() {
+            private int row;
+            private int col;
+            private int direction = 4;  // the next direction to try: 0 up, 1 left, 2 right, 3 down
+            private int next;           // the next neighbor, if direction < 4
+
+            @Override
+            public NeighborCursor reset(int node) {
+                int bit = bitOf(node);
+                row = bit / (wordsPerRow << 6);
+                col = bit % (wordsPerRow << 6);
+                direction = 0;
+                advance();
+                return this;
+            }
+
+            // the position is the direction of the next neighbor
+            @Override
+            public NeighborCursor reset(int node, int position) {
+                reset(node);
+                direction = position;
+                advance();
+                return this;
+            }
+
+            @Override
+            public int position() {
+                return direction;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return direction < 4;
+            }
+
+            @Override
+            public int next() {
+                int neighbor = next;
+                direction++;
+                advance();
+                return neighbor;
+            }
+
+            // moves direction to the next open neighbor and stores its node in next
+            private void advance() {
+                for (; direction < 4; direction++) {
+                    switch (direction) {
+                        case 0: next = getNode(row - 1, col); break;
+                        case 1: next = getNode(row, col - 1); break;
+                        case 2: next = getNode(row, col + 1); break;
+                        default: next = getNode(row + 1, col); break;
+                    }
+                    if (next != -1) {
+                        return;
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package programming2;
+
+/**
+ * An estimate of the distance between two nodes of a graph, for guiding A* search.
+ * Estimates must never be more than the true distance, or A* may not find the shortest path.
+ */
+public interface Heuristic {
+
+    /**
+     * Returns a lower bound on the number of edges on any path from node to goal
+     */
+    int estimate(int node, int goal);
+}
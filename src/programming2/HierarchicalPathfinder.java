@@ -0,0 +1,600 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hierarchical path-finding A* (HPA*, Botea, Muller and Schaeffer, 2004) on a maze grid.
+ *
+ * The grid is cut into square clusters.  Wherever two neighboring clusters share a run of open
+ * squares facing each other across their border, the run gets an entrance: a pair of squares,
+ * one on each side, in the middle of the run, or one pair at each end if the run is long.  The
+ * entrance squares are the nodes of a small abstract graph, with an edge of cost 1 across each
+ * entrance, and an edge between every two entrances of a cluster that can reach each other
+ * inside it, weighted by their distance within the cluster.  All of that is computed once, in
+ * parallel over the clusters.
+ *
+ * A query connects the start and goal to the entrances of their clusters, runs A* on the
+ * abstract graph, and then refines each abstract edge into squares with a BFS inside a single
+ * cluster, so no search ever looks at more than the clusters along the route.  Paths found this
+ * way are usually a little longer than the shortest path, since they must pass through entrances.
+ *
+ * When squares open or close, updateCluster recomputes just the borders and distances of the
+ * cluster holding them and its four neighbors.
+ *
+ * Queries only read the abstract graph, so any number of threads may run them at once.  Changing
+ * the grid and calling updateCluster is not synchronized with them, and must only be done while
+ * no query is running.
+ */
+public class HierarchicalPathfinder {
+    // directions: up, left, right, down, the same preference as the other maze searches
+    private static final int[] ROW_STEPS = {-1, 0, 0, 1};
+    private static final int[] COL_STEPS = {0, -1, 1, 0};
+    private static final int LONG_RUN = 6;  // runs at least this long get an entrance at each end
+
+    private final BitGrid grid;
+    private final int rows;
+    private final int cols;
+    private final int clusterSize;
+    private final int clusterRows;
+    private final int clusterCols;
+    private final int[][] rightEntrances;   // pairs of cells across each cluster's right border
+    private final int[][] downEntrances;    // pairs of cells across each cluster's bottom border
+    private final int[][] entrances;        // the sorted entrance cells of each cluster
+    private final int[][] distances;        // distances[k][i * e + j] between entrances i and j, or -1
+
+    /**
+     * Builds the abstract graph of the grid, with clusters of clusterSize by clusterSize
+     * squares, on a pool of the given number of threads
+     */
+    public HierarchicalPathfinder(BitGrid grid, int clusterSize, int threads) {
+        this.grid = grid;
+        rows = grid.getRows();
+        cols = grid.getCols();
+        this.clusterSize = clusterSize;
+        clusterRows = (rows + clusterSize - 1) / clusterSize;
+        clusterCols = (cols + clusterSize - 1) / clusterSize;
+        int clusters = clusterRows * clusterCols;
+        rightEntrances = new int[clusters][];
+        downEntrances = new int[clusters][];
+        entrances = new int[clusters][];
+        distances = new int[clusters][];
+        // borders first, since each cluster's entrances come from the borders around it
+        parallelFor(clusters, threads, new ClusterTask() {
+            public void run(int cluster, Scratch scratch) {
+                findBorderEntrances(cluster);
+            }
+        });
+        parallelFor(clusters, threads, new ClusterTask() {
+            public void run(int cluster, Scratch scratch) {
+                buildCluster(cluster, scratch);
+            }
+        });
+    }
+
+    public int getClusterCount() {
+        return entrances.length;
+    }
+
+    /**
+     * Returns the number of nodes in the abstract graph
+     */
+    public int getEntranceCount() {
+        int count = 0;
+        for (int[] clusterEntrances : entrances) {
+            count += clusterEntrances.length;
+        }
+        return count;
+    }
+
+    /**
+     * Rebuilds the part of the abstract graph around the cluster holding the square, after
+     * squares in that cluster opened or closed.  Only that cluster and its neighbors, whose
+     * entrances on the shared borders may have changed, are recomputed.  No query may run
+     * while this does.
+     */
+    public void updateCluster(int row, int col) {
+        int clusterRow = row / clusterSize;
+        int clusterCol = col / clusterSize;
+        int cluster = clusterRow * clusterCols + clusterCol;
+        findBorderEntrances(cluster);
+        if (clusterCol > 0) {
+            findBorderEntrances(cluster - 1);
+        }
+        if (clusterRow > 0) {
+            findBorderEntrances(cluster - clusterCols);
+        }
+        Scratch scratch = new Scratch(clusterSize);
+        buildCluster(cluster, scratch);
+        for (int dir = 0; dir < 4; dir++) {
+            int r = clusterRow + ROW_STEPS[dir];
+            int c = clusterCol + COL_STEPS[dir];
+            if (0 <= r && r < clusterRows && 0 <= c && c < clusterCols) {
+                buildCluster(r * clusterCols + c, scratch);
+            }
+        }
+    }
+
+    /**
+     * Finds a path between the start and goal of a ProcessedGraph whose graph is a GridGraph on
+     * this grid, as a list of its node numbers like MazeGraph.bfs, or an empty list if there is none.
+     */
+    public List<Integer> findPath(MazeGraph.ProcessedGraph processedGraph) {
+        return findPath(processedGraph, null);
+    }
+
+    /**
+     * Finds a path as above, reporting the abstract nodes expanded to the listener unless it is null
+     */
+    public List<Integer> findPath(MazeGraph.ProcessedGraph processedGraph, SearchListener listener) {
+        GridGraph graph = (GridGraph) processedGraph.graph;
+        if (listener != null) {
+            listener.searchStarted();
+        }
+        List<Integer> cells = search(graph.getCell(processedGraph.startNode), graph.getCell(processedGraph.goalNode), listener);
+        List<Integer> path = new ArrayList<Integer>(cells.size());
+        for (int cell : cells) {
+            path.add(graph.getNode(cell / cols, cell % cols));
+        }
+        if (listener != null) {
+            listener.searchFinished(path);
+        }
+        return path;
+    }
+
+    /**
+     * Finds a path between two squares, given and returned as cell indices, or an empty list
+     * if there is none
+     */
+    public List<Integer> findCellPath(int startCell, int goalCell) {
+        return findCellPath(startCell, goalCell, null);
+    }
+
+    /**
+     * Finds a path between two squares as above, reporting the abstract nodes expanded to the
+     * listener unless it is null
+     */
+    public List<Integer> findCellPath(int startCell, int goalCell, SearchListener listener) {
+        if (listener != null) {
+            listener.searchStarted();
+        }
+        List<Integer> path = search(startCell, goalCell, listener);
+        if (listener != null) {
+            listener.searchFinished(path);
+        }
+        return path;
+    }
+
+    /**
+     * Runs the abstract A* and refines its path into cells, reporting expansions and the size
+     * of the open set, but not the start or end of the search, to the listener unless it is null
+     */
+    private List<Integer> search(int startCell, int goalCell, SearchListener listener) {
+        if (!isOpen(startCell) || !isOpen(goalCell)) {
+            return new ArrayList<Integer>();
+        }
+        Scratch scratch = new Scratch(clusterSize);
+        int startCluster = clusterOf(startCell);
+        int goalCluster = clusterOf(goalCell);
+        // distances from the start within its cluster, and to the goal within its cluster
+        int[] startDistances = new int[scratch.distances.length];
+        int[] goalDistances = new int[scratch.distances.length];
+        bfs(startCluster, startCell, scratch);
+        System.arraycopy(scratch.distances, 0, startDistances, 0, startDistances.length);
+        bfs(goalCluster, goalCell, scratch);
+        System.arraycopy(scratch.distances, 0, goalDistances, 0, goalDistances.length);
+
+        Nodes nodes = new Nodes();
+        IntMinHeap open = new IntMinHeap();
+        int first = nodes.find(startCell);
+        nodes.distances[first] = 0;
+        open.add(priority(0, startCell, goalCell), first);
+        int goalNode = -1;
+        while (!open.isEmpty()) {
+            int node = open.removeMin();
+            if (nodes.closed[node]) {
+                continue;
+            }
+            nodes.closed[node] = true;
+            if (listener != null) {
+                listener.nodesExpanded(1);
+            }
+            int cell = nodes.cells[node];
+            if (cell == goalCell) {
+                goalNode = node;
+                break;
+            }
+            int cluster = clusterOf(cell);
+            int distance = nodes.distances[node];
+            if (cell == startCell) {
+                int[] clusterEntrances = entrances[startCluster];
+                for (int entrance : clusterEntrances) {
+                    int d = startDistances[localIndex(startCluster, entrance)];
+                    if (d >= 0) {
+                        relax(nodes, open, node, entrance, distance + d, goalCell);
+                    }
+                }
+            } else {
+                int index = Arrays.binarySearch(entrances[cluster], cell);
+                if (index >= 0) {
+                    int e = entrances[cluster].length;
+                    for (int j = 0; j < e; j++) {
+                        int d = distances[cluster][index * e + j];
+                        if (j != index && d >= 0) {
+                            relax(nodes, open, node, entrances[cluster][j], distance + d, goalCell);
+                        }
+                    }
+                }
+            }
+            if (cluster == goalCluster) {
+                int d = goalDistances[localIndex(goalCluster, cell)];
+                if (d >= 0) {
+                    relax(nodes, open, node, goalCell, distance + d, goalCell);
+                }
+            }
+            // the edges across entrances into neighboring clusters
+            int row = cell / cols;
+            int col = cell % cols;
+            for (int dir = 0; dir < 4; dir++) {
+                int r = row + ROW_STEPS[dir];
+                int c = col + COL_STEPS[dir];
+                if (grid.isOpen(r, c)) {
+                    int neighbor = grid.cell(r, c);
+                    int neighborCluster = clusterOf(neighbor);
+                    if (neighborCluster != cluster && Arrays.binarySearch(entrances[neighborCluster], neighbor) >= 0) {
+                        relax(nodes, open, node, neighbor, distance + 1, goalCell);
+                    }
+                }
+            }
+            if (listener != null) {
+                listener.frontierSize(open.size());
+            }
+        }
+        if (goalNode == -1) {
+            return new ArrayList<Integer>();
+        }
+        return refine(nodes, goalNode, scratch);
+    }
+
+    private void relax(Nodes nodes, IntMinHeap open, int parent, int cell, int distance, int goalCell) {
+        int node = nodes.find(cell);
+        if (!nodes.closed[node] && distance < nodes.distances[node]) {
+            nodes.distances[node] = distance;
+            nodes.parents[node] = parent;
+            open.add(priority(distance, cell, goalCell), node);
+        }
+    }
+
+    private long priority(int distance, int cell, int goalCell) {
+        int estimate = Math.abs(cell / cols - goalCell / cols) + Math.abs(cell % cols - goalCell % cols);
+        return ((long) (distance + estimate) << 32) | estimate;
+    }
+
+    /**
+     * Turns the abstract path ending at the goal node into squares.  Each abstract edge is
+     * either a single step across an entrance, or a path inside one cluster, found by BFS.
+     */
+    private List<Integer> refine(Nodes nodes, int goalNode, Scratch scratch) {
+        List<Integer> waypoints = new ArrayList<Integer>();
+        for (int node = goalNode; node != -1; node = nodes.parents[node]) {
+            waypoints.add(nodes.cells[node]);
+        }
+        Collections.reverse(waypoints);
+        List<Integer> path = new ArrayList<Integer>();
+        path.add(waypoints.get(0));
+        for (int i = 1; i < waypoints.size(); i++) {
+            int from = waypoints.get(i - 1);
+            int to = waypoints.get(i);
+            if (clusterOf(from) != clusterOf(to)) {
+                path.add(to);
+            } else if (from != to) {
+                // search back from the far end, so following parents walks forward
+                int cluster = clusterOf(from);
+                bfs(cluster, to, scratch);
+                for (int cell = from; cell != to; ) {
+                    cell = scratch.parents[localIndex(cluster, cell)];
+                    path.add(cell);
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Finds the entrances across the right and bottom borders of a cluster
+     */
+    private void findBorderEntrances(int cluster) {
+        int clusterRow = cluster / clusterCols;
+        int clusterCol = cluster % clusterCols;
+        int top = clusterRow * clusterSize;
+        int left = clusterCol * clusterSize;
+        int bottom = Math.min(top + clusterSize, rows);
+        int right = Math.min(left + clusterSize, cols);
+        rightEntrances[cluster] = right < cols ? borderEntrances(top, right - 1, bottom - top, 1, 0, 0, 1) : new int[0];
+        downEntrances[cluster] = bottom < rows ? borderEntrances(bottom - 1, left, right - left, 0, 1, 1, 0) : new int[0];
+    }
+
+    /**
+     * Walks length squares along a border from (row, col), stepping by (rowStep, colStep), and
+     * returns the entrances of each run of squares that are open on both sides, as pairs of
+     * cells, where the square across the border is at (row + acrossRow, col + acrossCol).
+     */
+    private int[] borderEntrances(int row, int col, int length, int rowStep, int colStep, int acrossRow, int acrossCol) {
+        int[] pairs = new int[8];
+        int count = 0;
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            int r = row + i * rowStep;
+            int c = col + i * colStep;
+            boolean open = i < length && grid.isOpen(r, c) && grid.isOpen(r + acrossRow, c + acrossCol);
+            if (open && runStart == -1) {
+                runStart = i;
+            } else if (!open && runStart != -1) {
+                int runEnd = i - 1;
+                int[] picks = runEnd - runStart + 1 >= LONG_RUN
+                        ? new int[] {runStart, runEnd} : new int[] {(runStart + runEnd) / 2};
+                for (int pick : picks) {
+                    if (count + 2 > pairs.length) {
+                        pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                    }
+                    int pr = row + pick * rowStep;
+                    int pc = col + pick * colStep;
+                    pairs[count++] = grid.cell(pr, pc);
+                    pairs[count++] = grid.cell(pr + acrossRow, pc + acrossCol);
+                }
+                runStart = -1;
+            }
+        }
+        return Arrays.copyOf(pairs, count);
+    }
+
+    /**
+     * Collects a cluster's entrances from the borders around it, and finds the distances
+     * between them inside the cluster
+     */
+    private void buildCluster(int cluster, Scratch scratch) {
+        int clusterCol = cluster % clusterCols;
+        int[] cells = new int[16];
+        int count = 0;
+        int[][] sides = {
+                rightEntrances[cluster], downEntrances[cluster],
+                clusterCol > 0 ? rightEntrances[cluster - 1] : null,
+                cluster >= clusterCols ? downEntrances[cluster - clusterCols] : null};
+        for (int s = 0; s < sides.length; s++) {
+            if (sides[s] != null) {
+                // this cluster's own borders hold its squares first in each pair
+                for (int i = s < 2 ? 0 : 1; i < sides[s].length; i += 2) {
+                    if (count == cells.length) {
+                        cells = Arrays.copyOf(cells, count * 2);
+                    }
+                    cells[count++] = sides[s][i];
+                }
+            }
+        }
+        Arrays.sort(cells, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || cells[unique - 1] != cells[i]) {
+                cells[unique++] = cells[i];
+            }
+        }
+        int[] clusterEntrances = Arrays.copyOf(cells, unique);
+        int[] clusterDistances = new int[unique * unique];
+        for (int i = 0; i < unique; i++) {
+            bfs(cluster, clusterEntrances[i], scratch);
+            for (int j = 0; j < unique; j++) {
+                clusterDistances[i * unique + j] = scratch.distances[localIndex(cluster, clusterEntrances[j])];
+            }
+        }
+        distances[cluster] = clusterDistances;
+        entrances[cluster] = clusterEntrances;
+    }
+
+    /**
+     * Runs BFS from a square without leaving its cluster, filling the scratch distances, -1 for
+     * squares not reached, and parents, indexed by position in the cluster
+     */
+    private void bfs(int cluster, int source, Scratch scratch) {
+        int top = (cluster / clusterCols) * clusterSize;
+        int left = (cluster % clusterCols) * clusterSize;
+        int bottom = Math.min(top + clusterSize, rows);
+        int right = Math.min(left + clusterSize, cols);
+        int[] dist = scratch.distances;
+        Arrays.fill(dist, -1);
+        int[] queue = scratch.queue;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        dist[localIndex(cluster, source)] = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / cols;
+            int col = cell % cols;
+            int d = dist[localIndex(cluster, cell)] + 1;
+            for (int dir = 0; dir < 4; dir++) {
+                int r = row + ROW_STEPS[dir];
+                int c = col + COL_STEPS[dir];
+                if (top <= r && r < bottom && left <= c && c < right && grid.isOpen(r, c)) {
+                    int neighbor = grid.cell(r, c);
+                    int local = localIndex(cluster, neighbor);
+                    if (dist[local] == -1) {
+                        dist[local] = d;
+                        scratch.parents[local] = cell;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isOpen(int cell) {
+        return grid.isOpen(cell / cols, cell % cols);
+    }
+
+    private int clusterOf(int cell) {
+        return (cell / cols / clusterSize) * clusterCols + (cell % cols) / clusterSize;
+    }
+
+    /**
+     * Returns the position of a square within its cluster, row-major with clusterSize columns
+     */
+    private int localIndex(int cluster, int cell) {
+        int row = cell / cols - (cluster / clusterCols) * clusterSize;
+        int col = cell % cols - (cluster % clusterCols) * clusterSize;
+        return row * clusterSize + col;
+    }
+
+    private interface ClusterTask {
+        void run(int cluster, Scratch scratch);
+    }
+
+    /**
+     * Runs the task on every cluster, split into one strided share per thread, each with its
+     * own scratch space
+     */
+    private void parallelFor(final int clusters, final int threads, final ClusterTask task) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+            for (int t = 0; t < threads; t++) {
+                final int share = t;
+                futures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        Scratch scratch = new Scratch(clusterSize);
+                        for (int cluster = share; cluster < clusters; cluster += threads) {
+                            task.run(cluster, scratch);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Working arrays for a BFS inside one cluster
+     */
+    private static class Scratch {
+        final int[] distances;
+        final int[] parents;
+        final int[] queue;
+
+        Scratch(int clusterSize) {
+            distances = new int[clusterSize * clusterSize];
+            parents = new int[distances.length];
+            queue = new int[distances.length];
+        }
+    }
+
+    /**
+     * The abstract nodes found by a query, numbered in order, with an open-addressing hash
+     * table from cells to node numbers, so a query only uses memory for the nodes it sees
+     */
+    private static class Nodes {
+        int[] cells = new int[16];
+        int[] distances = new int[16];
+        int[] parents = new int[16];
+        boolean[] closed = new boolean[16];
+        int count = 0;
+        int[] table = new int[64];  // node number + 1 for each hash slot, or 0 if empty
+
+        /**
+         * Returns the number of the node for the cell, adding it with an infinite
+         * distance and no parent if it is new
+         */
+        int find(int cell) {
+            int mask = table.length - 1;
+            int slot = hash(cell) & mask;
+            while (table[slot] != 0) {
+                if (cells[table[slot] - 1] == cell) {
+                    return table[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count * 2);
+                distances = Arrays.copyOf(distances, count * 2);
+                parents = Arrays.copyOf(parents, count * 2);
+                closed = Arrays.copyOf(closed, count * 2);
+            }
+            cells[count] = cell;
+            distances[count] = Integer.MAX_VALUE;
+            parents[count] = -1;
+            table[slot] = ++count;
+            if (count * 2 > table.length) {
+                rehash();
+            }
+            return count - 1;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int node = 0; node < count; node++) {
+                int slot = hash(cells[node]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = node + 1;
+            }
+        }
+
+        private static int hash(int cell) {
+            int h = cell * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Builds the abstraction of a large random maze, then compares query paths and times
+     * against BFS.
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        MazeGraph.ProcessedGraph maze = MazeGraph.mazeToGridGraph(MazeBenchmark.randomMaze(size, 0.3, 1));
+        GridGraph graph = (GridGraph) maze.graph;
+        long start = System.currentTimeMillis();
+        HierarchicalPathfinder pathfinder = new HierarchicalPathfinder(graph.getGrid(), 32,
+                Runtime.getRuntime().availableProcessors());
+        System.out.println("Built " + pathfinder.getClusterCount() + " clusters with " + pathfinder.getEntranceCount()
+                + " entrances in " + (System.currentTimeMillis() - start) + " ms");
+        Random random = new Random(1);
+        long hpaTime = 0;
+        long bfsTime = 0;
+        long hpaLength = 0;
+        long bfsLength = 0;
+        for (int q = 0; q < 50; q++) {
+            MazeGraph.ProcessedGraph query = new MazeGraph.ProcessedGraph(
+                    random.nextInt(graph.getSize()), random.nextInt(graph.getSize()), graph);
+            start = System.nanoTime();
+            List<Integer> path = pathfinder.findPath(query);
+            hpaTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            List<Integer> shortest = MazeGraph.bfs(query);
+            bfsTime += System.nanoTime() - start;
+            hpaLength += path.size();
+            bfsLength += shortest.size();
+        }
+        System.out.printf("HPA*: %d ms, total length %d; BFS: %d ms, total length %d (%.1f%% longer)%n",
+                hpaTime / 1000000, hpaLength, bfsTime / 1000000, bfsLength, 100.0 * (hpaLength - bfsLength) / bfsLength);
+    }
+}
@@ -0,0 +1,193 @@
+package programming2;
+
+import java.util.Arrays;
+
+/**
+ * A d-ary min-heap of the nodes 0 through capacity - 1, ordered by long keys, that can find any
+ * node in it to change its key or remove it in place.  Unlike IntMinHeap, each node is in the heap at most
+ * once, so a search never has stale entries to skip, and the heap never holds more than
+ * capacity entries.  Entries with equal keys come out in increasing node order.
+ *
+ * A larger arity makes the heap shallower, so decreaseKey is cheaper and removeMin compares
+ * more children per level.  Searches do many more decreases than removals, so 4 is the default.
+ */
+public class IndexedMinHeap {
+    private final int arity;
+    private final int[] heap;       // the nodes in heap order
+    private final int[] indices;    // the index of each node in heap, or -1 if it is not in it
+    private final long[] keys;      // the key of each node in the heap
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        this(capacity, 4);
+    }
+
+    public IndexedMinHeap(int capacity, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("The arity must be at least 2");
+        }
+        this.arity = arity;
+        heap = new int[capacity];
+        indices = new int[capacity];
+        Arrays.fill(indices, -1);
+        keys = new long[capacity];
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int node) {
+        return indices[node] != -1;
+    }
+
+    /**
+     * Returns the key of a node in the heap
+     */
+    public long getKey(int node) {
+        return keys[node];
+    }
+
+    /**
+     * Adds a node that is not in the heap
+     */
+    public void add(int node, long key) {
+        keys[node] = key;
+        heap[size] = node;
+        indices[node] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Lowers the key of a node in the heap.  Keys that are not lower are ignored.
+     */
+    public void decreaseKey(int node, long key) {
+        if (less(key, node, keys[node], node)) {
+            keys[node] = key;
+            siftUp(indices[node]);
+        }
+    }
+
+    /**
+     * Adds the node with the key, or lowers its key if it is already in the heap
+     */
+    public void addOrDecrease(int node, long key) {
+        if (contains(node)) {
+            decreaseKey(node, key);
+        } else {
+            add(node, key);
+        }
+    }
+
+    /**
+     * Changes the key of a node in the heap, up or down
+     */
+    public void update(int node, long key) {
+        long oldKey = keys[node];
+        keys[node] = key;
+        if (key < oldKey) {
+            siftUp(indices[node]);
+        } else {
+            siftDown(indices[node]);
+        }
+    }
+
+    /**
+     * Removes a node from the heap, if it is in it
+     */
+    public void remove(int node) {
+        int index = indices[node];
+        if (index == -1) {
+            return;
+        }
+        indices[node] = -1;
+        size--;
+        if (index < size) {
+            int last = heap[size];
+            heap[index] = last;
+            indices[last] = index;
+            siftUp(index);
+            siftDown(indices[last]);
+        }
+    }
+
+    /**
+     * Returns the smallest key in the heap.  The heap must not be empty.
+     */
+    public long peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Returns the node with the smallest key.  The heap must not be empty.
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Removes the node with the smallest key and returns it.  The heap must not be empty.
+     */
+    public int removeMin() {
+        int min = heap[0];
+        indices[min] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            indices[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int index) {
+        int node = heap[index];
+        long key = keys[node];
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            if (!less(key, node, keys[heap[parent]], heap[parent])) {
+                break;
+            }
+            heap[index] = heap[parent];
+            indices[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = node;
+        indices[node] = index;
+    }
+
+    private void siftDown(int index) {
+        int node = heap[index];
+        long key = keys[node];
+        while (true) {
+            int firstChild = arity * index + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int best = firstChild;
+            int lastChild = Math.min(firstChild + arity, size);
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                if (less(keys[heap[child]], heap[child], keys[heap[best]], heap[best])) {
+                    best = child;
+                }
+            }
+            if (!less(keys[heap[best]], heap[best], key, node)) {
+                break;
+            }
+            heap[index] = heap[best];
+            indices[heap[index]] = index;
+            index = best;
+        }
+        heap[index] = node;
+        indices[node] = index;
+    }
+
+    private static boolean less(long key1, int node1, long key2, int node2) {
+        return key1 < key2 || (key1 == key2 && node1 < node2);
+    }
+}
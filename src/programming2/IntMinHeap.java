@@ -0,0 +1,105 @@
+package programming2;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int values ordered by long keys, stored in parallel primitive arrays so
+ * that adding and removing entries never boxes.  Entries with equal keys come out in increasing
+ * order of value, so searches built on the heap are deterministic.
+ *
+ * There is no decrease-key: a search that finds a better key for a value just adds it again,
+ * and skips the stale entry when it comes out later.
+ */
+public class IntMinHeap {
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public IntMinHeap() {
+        this(16);
+    }
+
+    public IntMinHeap(int initialCap) {
+        keys = new long[Math.max(initialCap, 2)];
+        values = new int[keys.length];
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(long key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int currNode = size++;
+        while (currNode > 0) {
+            int parentNode = (currNode - 1) >>> 1;
+            if (!less(key, value, keys[parentNode], values[parentNode])) {
+                break;
+            }
+            keys[currNode] = keys[parentNode];
+            values[currNode] = values[parentNode];
+            currNode = parentNode;
+        }
+        keys[currNode] = key;
+        values[currNode] = value;
+    }
+
+    /**
+     * Returns the smallest key in the heap.  The heap must not be empty.
+     */
+    public long peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * Returns the value with the smallest key.  The heap must not be empty.
+     */
+    public int peekValue() {
+        return values[0];
+    }
+
+    /**
+     * Removes the entry with the smallest key and returns its value.  The heap must not be empty.
+     */
+    public int removeMin() {
+        int min = values[0];
+        size--;
+        if (size > 0) {
+            long key = keys[size];
+            int value = values[size];
+            int currNode = 0;
+            int childNode = 1;
+            while (childNode < size) {
+                if (childNode + 1 < size && less(keys[childNode + 1], values[childNode + 1], keys[childNode], values[childNode])) {
+                    childNode++;
+                }
+                if (!less(keys[childNode], values[childNode], key, value)) {
+                    break;
+                }
+                keys[currNode] = keys[childNode];
+                values[currNode] = values[childNode];
+                currNode = childNode;
+                childNode = 2 * currNode + 1;
+            }
+            keys[currNode] = key;
+            values[currNode] = value;
+        }
+        return min;
+    }
+
+    private static boolean less(long key1, int value1, long key2, int value2) {
+        return key1 < key2 || (key1 == key2 && value1 < value2);
+    }
+}
@@ -0,0 +1,300 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Jump Point Search for 4-connected mazes where every step costs the same.  It is A* with a
+ * Manhattan heuristic, except that instead of stepping to each neighbor it jumps straight along
+ * corridors, and only adds a square to the open set where the path might need to turn.
+ *
+ * On such a grid, many shortest paths differ only in the order of their moves.  This search only
+ * follows the canonical one, which turns vertically as early as possible:
+ *  - After a vertical move, the path may continue vertically or turn left or right.
+ *  - After a horizontal move, it may continue horizontally, but only turn up or down if it
+ *    could not have turned one square earlier, because that square was a wall.  Such a turn
+ *    is called forced.
+ * A horizontal jump runs until it hits a wall, the goal, or a square with a forced turn.
+ * A vertical jump also stops at any square from which a horizontal jump finds something.
+ * The squares where jumps stop are the jump points, and they are the only ones expanded.
+ *
+ * The search runs directly on the BitGrid of a GridGraph, and returns the full path square by
+ * square, as GridGraph node numbers, just like MazeGraph.bfs.
+ */
+public class JumpPointSearch {
+    // directions: up, left, right, down, in increasing node order like the graph cursors
+    private static final int[] ROW_STEPS = {-1, 0, 0, 1};
+    private static final int[] COL_STEPS = {0, -1, 1, 0};
+    private static final int START = 4;  // the direction of the start state, which has no move yet
+
+    private final GridGraph graph;
+    private final BitGrid grid;
+    private int goalRow;
+    private int goalCol;
+    private int expanded;
+    private SearchListener listener;
+
+    public JumpPointSearch(GridGraph graph) {
+        this.graph = graph;
+        grid = graph.getGrid();
+    }
+
+    /**
+     * Finds a path from start to goal in a ProcessedGraph built on a GridGraph,
+     * such as those from MazeGraph.mazeToGridGraph.
+     */
+    public static List<Integer> search(MazeGraph.ProcessedGraph processedGraph) {
+        return search(processedGraph, null);
+    }
+
+    /**
+     * Finds a path as above, reporting the jump points expanded to the listener unless it is null
+     */
+    public static List<Integer> search(MazeGraph.ProcessedGraph processedGraph, SearchListener listener) {
+        if (!(processedGraph.graph instanceof GridGraph)) {
+            throw new IllegalArgumentException("Jump Point Search needs a GridGraph");
+        }
+        JumpPointSearch jps = new JumpPointSearch((GridGraph) processedGraph.graph);
+        jps.setListener(listener);
+        return jps.search(processedGraph.startNode, processedGraph.goalNode);
+    }
+
+    /**
+     * Sets the listener that later searches report to, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the number of jump points expanded by the last search
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Computes a shortest path between two nodes of the graph.  Returns the list of nodes on
+     * the path, or an empty list if there is none.
+     */
+    public List<Integer> search(int startNode, int goalNode) {
+        int startRow = graph.getRow(startNode);
+        int startCol = graph.getCol(startNode);
+        goalRow = graph.getRow(goalNode);
+        goalCol = graph.getCol(goalNode);
+        expanded = 0;
+        if (listener != null) {
+            listener.searchStarted();
+        }
+        // search states are a square plus the direction of the jump that reached it, since
+        // that decides which way the path may go next. States are numbered as they are found.
+        States states = new States();
+        IntMinHeap open = new IntMinHeap();
+        int first = states.find(grid.cell(startRow, startCol), START);
+        states.distances[first] = 0;
+        open.add(priority(0, startRow, startCol), first);
+        while (!open.isEmpty()) {
+            int state = open.removeMin();
+            if (states.closed[state]) {
+                continue;
+            }
+            states.closed[state] = true;
+            expanded++;
+            if (listener != null) {
+                listener.nodesExpanded(1);
+            }
+            int cell = states.cellOf(state);
+            int row = cell / grid.getCols();
+            int col = cell % grid.getCols();
+            if (row == goalRow && col == goalCol) {
+                return finish(buildPath(states, state));
+            }
+            int dir = states.dirOf(state);
+            for (int next = 0; next < 4; next++) {
+                if (isSuccessor(row, col, dir, next)) {
+                    int jumpPoint = jump(row, col, next);
+                    if (jumpPoint != -1) {
+                        int jumpRow = jumpPoint / grid.getCols();
+                        int jumpCol = jumpPoint % grid.getCols();
+                        int distance = states.distances[state] + Math.abs(jumpRow - row) + Math.abs(jumpCol - col);
+                        int successor = states.find(jumpPoint, next);
+                        if (!states.closed[successor] && distance < states.distances[successor]) {
+                            states.distances[successor] = distance;
+                            states.parents[successor] = state;
+                            open.add(priority(distance, jumpRow, jumpCol), successor);
+                        }
+                    }
+                }
+            }
+            if (listener != null) {
+                listener.frontierSize(open.size());
+            }
+        }
+        return finish(new ArrayList<Integer>());
+    }
+
+    private List<Integer> finish(List<Integer> path) {
+        if (listener != null) {
+            listener.searchFinished(path);
+        }
+        return path;
+    }
+
+    /**
+     * Checks whether a path that reached the square moving in direction dir may continue in
+     * direction next, following the canonical ordering described above.
+     */
+    private boolean isSuccessor(int row, int col, int dir, int next) {
+        if (dir == START) {
+            return true;
+        } else if (next == 3 - dir) {
+            return false;   // never turn back
+        } else if (isVertical(dir) || next == dir) {
+            return true;
+        } else {
+            return isForced(row, col, COL_STEPS[dir], ROW_STEPS[next]);
+        }
+    }
+
+    /**
+     * Checks whether a path moving horizontally by colStep into the square is forced to turn
+     * vertically by rowStep: the square that way is open, but the one diagonally behind is not.
+     */
+    private boolean isForced(int row, int col, int colStep, int rowStep) {
+        return grid.isOpen(row + rowStep, col) && !grid.isOpen(row + rowStep, col - colStep);
+    }
+
+    private static boolean isVertical(int dir) {
+        return dir == 0 || dir == 3;
+    }
+
+    /**
+     * Jumps from the square in the given direction, and returns the cell of the jump point
+     * found, or -1 if the jump runs into a wall first.
+     */
+    private int jump(int row, int col, int dir) {
+        int rowStep = ROW_STEPS[dir];
+        int colStep = COL_STEPS[dir];
+        while (true) {
+            row += rowStep;
+            col += colStep;
+            if (!grid.isOpen(row, col)) {
+                return -1;
+            }
+            if (row == goalRow && col == goalCol) {
+                return grid.cell(row, col);
+            }
+            if (isVertical(dir)) {
+                if (jump(row, col, 1) != -1 || jump(row, col, 2) != -1) {
+                    return grid.cell(row, col);
+                }
+            } else if (isForced(row, col, colStep, -1) || isForced(row, col, colStep, 1)) {
+                return grid.cell(row, col);
+            }
+        }
+    }
+
+    private long priority(int distance, int row, int col) {
+        int estimate = Math.abs(row - goalRow) + Math.abs(col - goalCol);
+        return ((long) (distance + estimate) << 32) | estimate;
+    }
+
+    /**
+     * Follows the parents back from the goal state, filling in the squares along each jump
+     */
+    private List<Integer> buildPath(States states, int goalState) {
+        int cols = grid.getCols();
+        List<Integer> reversed = new ArrayList<Integer>(states.distances[goalState] + 1);
+        int state = goalState;
+        int parent = states.parents[state];
+        while (parent != -1) {
+            int row = states.cellOf(state) / cols;
+            int col = states.cellOf(state) % cols;
+            int parentRow = states.cellOf(parent) / cols;
+            int parentCol = states.cellOf(parent) % cols;
+            int rowStep = Integer.signum(parentRow - row);
+            int colStep = Integer.signum(parentCol - col);
+            for (; row != parentRow || col != parentCol; row += rowStep, col += colStep) {
+                reversed.add(graph.getNode(row, col));
+            }
+            state = parent;
+            parent = states.parents[state];
+        }
+        reversed.add(graph.getNode(states.cellOf(state) / cols, states.cellOf(state) % cols));
+        List<Integer> path = new ArrayList<Integer>(reversed.size());
+        for (int i = reversed.size() - 1; i >= 0; i--) {
+            path.add(reversed.get(i));
+        }
+        return path;
+    }
+
+    /**
+     * The states found so far, numbered in order, with an open-addressing hash table from
+     * (cell, direction) keys to state numbers.  Only jump points ever become states, so this
+     * stays small even when the grid is huge.
+     */
+    private static class States {
+        long[] keys = new long[16];
+        int[] distances = new int[16];
+        int[] parents = new int[16];
+        boolean[] closed = new boolean[16];
+        int count = 0;
+        int[] table = new int[64];  // state number + 1 for each hash slot, or 0 if empty
+
+        int cellOf(int state) {
+            return (int) (keys[state] / 5);
+        }
+
+        int dirOf(int state) {
+            return (int) (keys[state] % 5);
+        }
+
+        /**
+         * Returns the number of the state for the cell and direction, adding it
+         * with an infinite distance and no parent if it is new
+         */
+        int find(int cell, int dir) {
+            long key = (long) cell * 5 + dir;
+            int mask = table.length - 1;
+            int slot = hash(key) & mask;
+            while (table[slot] != 0) {
+                if (keys[table[slot] - 1] == key) {
+                    return table[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                distances = Arrays.copyOf(distances, count * 2);
+                parents = Arrays.copyOf(parents, count * 2);
+                closed = Arrays.copyOf(closed, count * 2);
+            }
+            keys[count] = key;
+            distances[count] = Integer.MAX_VALUE;
+            parents[count] = -1;
+            table[slot] = ++count;
+            if (count * 2 > table.length) {
+                rehash();
+            }
+            return count - 1;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int state = 0; state < count; state++) {
+                int slot = hash(keys[state]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = state + 1;
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package programming2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A landmark distance oracle for the ALT (A*, landmarks, triangle inequality) search.  It stores
+ * the BFS distance from each of k landmark nodes to every node.  By the triangle inequality,
+ * |d(L, goal) - d(L, node)| is a lower bound on the distance from node to goal for every
+ * landmark L, so the largest of those is a heuristic for A* that is usually much tighter than
+ * the Manhattan distance in mazes, where walls make paths far longer than the straight line.
+ * The oracle is a Heuristic, so MazeGraph.astar can use it directly.
+ *
+ * Landmarks are picked by farthest-point selection: each new landmark is the node farthest from
+ * all the landmarks so far.  Keeping those distances up to date only needs a BFS from the new
+ * landmark that stops wherever an older landmark is at least as close, so picking all k costs
+ * little more than one BFS.  The full distance tables are then filled in parallel, one landmark
+ * per task.
+ *
+ * A landmark only gives bounds within its own component, so on a graph with several components
+ * the k landmarks are shared out between them in proportion to their sizes, largest first, and
+ * each component runs its own farthest-point selection.  Components too small for a share, such
+ * as the isolated pockets of a random maze, get none; queries there are short anyway.
+ *
+ * The tables are stored node by node, so the k distances of a node share a cache line, as
+ * shorts when the graph is small enough and as ints otherwise.  Nodes a landmark cannot reach
+ * have distance -1.  The graph is treated as undirected.
+ */
+public class LandmarkOracle implements Heuristic {
+    private static final int MAGIC = 0x414C5430;  // "ALT0"
+    private static final int UNREACHED = -1;
+
+    private final int nodes;
+    private final int[] landmarks;
+    private final short[] shortDistances;   // distances[node * k + i] from landmark i, or null
+    private final int[] intDistances;       // the same, when some distance does not fit a short
+
+    private LandmarkOracle(int nodes, int[] landmarks, short[] shortDistances, int[] intDistances) {
+        this.nodes = nodes;
+        this.landmarks = landmarks;
+        this.shortDistances = shortDistances;
+        this.intDistances = intDistances;
+    }
+
+    /**
+     * Returns the length of the distance table for the given numbers of nodes and landmarks,
+     * which must fit in one array
+     */
+    private static int tableLength(int nodes, int landmarkCount) {
+        long length = (long) nodes * landmarkCount;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A table of " + landmarkCount + " landmarks for " + nodes
+                    + " nodes has " + length + " entries, more than an array can hold");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Picks up to k landmarks in the graph and computes their distance tables on a pool of the
+     * given number of threads.  Fewer landmarks are picked if the graph has fewer than k nodes
+     * in components of more than one node.
+     */
+    public static LandmarkOracle build(final Graph graph, int k, int threads) {
+        final int size = graph.getSize();
+        int[] picked = new int[Math.min(k, size)];
+        tableLength(size, picked.length);   // fail before any work if the tables could not fit
+        ConnectedComponents components = new ConnectedComponents(graph, threads);
+        int[] labels = components.getLabels();
+        int[] componentSizes = components.getComponentSizes();
+        int[] largest = largestComponents(componentSizes);
+        int[] shares = shareLandmarks(componentSizes, largest, picked.length);
+
+        // Pick the landmarks, keeping each node's distance to the nearest landmark so far
+        int[] nearest = new int[size];
+        int[] queue = new int[size];
+        NeighborCursor cursor = graph.newCursor();
+        Arrays.fill(nearest, Integer.MAX_VALUE);
+        int count = 0;
+        int maxDistance = 0;   // distances in the tables are at most twice this
+        for (int c = 0; c < largest.length && shares[c] > 0; c++) {
+            int label = largest[c];
+            // start from the node farthest from the component's smallest node, which is on its edge
+            boundedBfs(cursor, label, nearest, queue);
+            int candidate = farthest(nearest, labels, label);
+            for (int node = label; node < size; node++) {
+                if (labels[node] == label) {
+                    nearest[node] = Integer.MAX_VALUE;
+                }
+            }
+            // the first landmark reaches the whole component, so every distance in it is at
+            // most twice its eccentricity
+            maxDistance = Math.max(maxDistance, boundedBfs(cursor, candidate, nearest, queue));
+            picked[count++] = candidate;
+            for (int i = 1; i < shares[c]; i++) {
+                candidate = farthest(nearest, labels, label);
+                if (nearest[candidate] == 0) {
+                    break;  // every node of the component is already a landmark
+                }
+                boundedBfs(cursor, candidate, nearest, queue);
+                picked[count++] = candidate;
+            }
+        }
+        final int[] chosen = Arrays.copyOf(picked, count);
+        final int landmarkCount = count;
+        final boolean wide = 2L * maxDistance > Short.MAX_VALUE;
+        final short[] shortDistances = wide ? null : new short[tableLength(size, landmarkCount)];
+        final int[] intDistances = wide ? new int[tableLength(size, landmarkCount)] : null;
+
+        // Fill in the tables, one landmark per task
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(landmarkCount);
+            for (int i = 0; i < landmarkCount; i++) {
+                final int landmark = i;
+                futures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        int[] distances = new int[size];
+                        Arrays.fill(distances, Integer.MAX_VALUE);
+                        boundedBfs(graph.newCursor(), chosen[landmark], distances, new int[size]);
+                        for (int node = 0; node < size; node++) {
+                            int distance = distances[node] == Integer.MAX_VALUE ? UNREACHED : distances[node];
+                            if (wide) {
+                                intDistances[node * landmarkCount + landmark] = distance;
+                            } else {
+                                shortDistances[node * landmarkCount + landmark] = (short) distance;
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return new LandmarkOracle(size, chosen, shortDistances, intDistances);
+    }
+
+    /**
+     * Runs BFS from the source, lowering distances[v] to the distance from the source wherever
+     * that is smaller, and not going past nodes where it is not.  With every distance at
+     * Integer.MAX_VALUE this is a plain BFS.  Returns the largest distance it set.
+     */
+    private static int boundedBfs(NeighborCursor cursor, int source, int[] distances, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        distances[source] = 0;
+        queue[tail++] = source;
+        int farthest = 0;
+        while (head < tail) {
+            int node = queue[head++];
+            int distance = distances[node] + 1;
+            for (cursor.reset(node); cursor.hasNext(); ) {
+                int i = cursor.next();
+                if (distance < distances[i]) {
+                    distances[i] = distance;
+                    farthest = distance;
+                    queue[tail++] = i;
+                }
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Returns the labels of the components of more than one node, largest first, and smallest
+     * label first on ties
+     */
+    private static int[] largestComponents(int[] componentSizes) {
+        int count = 0;
+        long[] keys = new long[componentSizes.length];  // -size << 32 | label, for sorting
+        for (int label = 0; label < componentSizes.length; label++) {
+            if (componentSizes[label] > 1) {
+                keys[count++] = ((long) -componentSizes[label] << 32) | label;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        int[] largest = new int[count];
+        for (int i = 0; i < count; i++) {
+            largest[i] = (int) keys[i];
+        }
+        return largest;
+    }
+
+    /**
+     * Shares k landmarks out between the components, listed largest first, in proportion to
+     * their sizes, with the landmarks left over after rounding down going to the largest ones.
+     * No component gets more landmarks than it has nodes.
+     */
+    private static int[] shareLandmarks(int[] componentSizes, int[] largest, int k) {
+        long total = 0;
+        for (int label : largest) {
+            total += componentSizes[label];
+        }
+        int[] shares = new int[largest.length];
+        int left = k;
+        for (int c = 0; c < largest.length; c++) {
+            shares[c] = (int) ((long) k * componentSizes[largest[c]] / total);
+            left -= shares[c];
+        }
+        for (int c = 0; c < largest.length && left > 0; c++) {
+            if (shares[c] < componentSizes[largest[c]]) {
+                shares[c]++;
+                left--;
+            }
+        }
+        return shares;
+    }
+
+    /**
+     * Returns the node of the component with the given label with the largest distance, the
+     * smallest such node on ties.  The component's smallest node is its label.
+     */
+    private static int farthest(int[] distances, int[] labels, int label) {
+        int best = label;
+        for (int i = label + 1; i < distances.length; i++) {
+            if (labels[i] == label && distances[i] > distances[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Returns the landmark nodes, in the order they were picked
+     */
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Returns the distance from the ith landmark to the node, or -1 if it cannot reach it
+     */
+    public int getDistance(int landmark, int node) {
+        int index = node * landmarks.length + landmark;
+        return shortDistances != null ? shortDistances[index] : intDistances[index];
+    }
+
+    /**
+     * Returns the largest lower bound on the distance from node to goal given by any landmark.
+     * Landmarks that cannot reach both nodes give no bound.
+     */
+    @Override
+    public int estimate(int node, int goal) {
+        int k = landmarks.length;
+        int bound = 0;
+        if (shortDistances != null) {
+            for (int i = 0, a = node * k, b = goal * k; i < k; i++, a++, b++) {
+                int d1 = shortDistances[a];
+                int d2 = shortDistances[b];
+                if (d1 >= 0 && d2 >= 0) {
+                    bound = Math.max(bound, Math.abs(d1 - d2));
+                }
+            }
+        } else {
+            for (int i = 0, a = node * k, b = goal * k; i < k; i++, a++, b++) {
+                int d1 = intDistances[a];
+                int d2 = intDistances[b];
+                if (d1 >= 0 && d2 >= 0) {
+                    bound = Math.max(bound, Math.abs(d1 - d2));
+                }
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Returns a heuristic that takes the larger of this oracle's bound and another's, such as
+     * GridGraph.manhattan.  In open mazes the landmarks are often looser than the straight-line
+     * distance, and the larger of two lower bounds is still a lower bound.
+     */
+    public Heuristic combinedWith(final Heuristic other) {
+        return new Heuristic() {
+            @Override
+            public int estimate(int node, int goal) {
+                return Math.max(LandmarkOracle.this.estimate(node, goal), other.estimate(node, goal));
+            }
+        };
+    }
+
+    /**
+     * Runs A* with the landmark bounds from the start to the goal of the ProcessedGraph,
+     * which must be the graph the oracle was built on
+     */
+    public List<Integer> astar(MazeGraph.ProcessedGraph processedGraph, SearchListener listener) {
+        return MazeGraph.astar(processedGraph, this, listener);
+    }
+
+    /**
+     * Writes the oracle to a file, so it only has to be built once for a graph
+     */
+    public void save(String filename) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(nodes);
+            out.writeInt(landmarks.length);
+            out.writeBoolean(intDistances != null);
+            for (int landmark : landmarks) {
+                out.writeInt(landmark);
+            }
+            if (shortDistances != null) {
+                for (short distance : shortDistances) {
+                    out.writeShort(distance);
+                }
+            } else {
+                for (int distance : intDistances) {
+                    out.writeInt(distance);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads an oracle written by save
+     */
+    public static LandmarkOracle load(String filename) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(filename + " is not a landmark file");
+            }
+            int nodes = in.readInt();
+            int[] landmarks = new int[in.readInt()];
+            boolean wide = in.readBoolean();
+            for (int i = 0; i < landmarks.length; i++) {
+                landmarks[i] = in.readInt();
+            }
+            int length = tableLength(nodes, landmarks.length);
+            short[] shortDistances = wide ? null : new short[length];
+            int[] intDistances = wide ? new int[length] : null;
+            for (int i = 0; i < length; i++) {
+                if (wide) {
+                    intDistances[i] = in.readInt();
+                } else {
+                    shortDistances[i] = in.readShort();
+                }
+            }
+            return new LandmarkOracle(nodes, landmarks, shortDistances, intDistances);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Builds an oracle for a random maze, saves and reloads it, and compares A* with the
+     * landmark bounds against A* with the Manhattan distance, and with both, on random queries.
+     * The landmarks must expand no more nodes than the Manhattan distance.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> mazelist = args.length > 0 ? MazeGraph.readMaze(args[0]) : MazeBenchmark.randomMaze(1000, 0.3, 1);
+        MazeGraph.ProcessedGraph maze = MazeGraph.mazeToGridGraph(mazelist);
+        GridGraph graph = (GridGraph) maze.graph;
+        long start = System.currentTimeMillis();
+        LandmarkOracle oracle = build(graph, 16, Runtime.getRuntime().availableProcessors());
+        System.out.println("Built " + oracle.getLandmarkCount() + " landmarks for " + graph.getSize()
+                + " nodes in " + (System.currentTimeMillis() - start) + " ms");
+        File file = File.createTempFile("landmarks", ".alt");
+        file.deleteOnExit();
+        oracle.save(file.getPath());
+        oracle = load(file.getPath());
+
+        Random random = new Random(1);
+        SearchStats stats = new SearchStats();
+        long altExpanded = 0;
+        long manhattanExpanded = 0;
+        long combinedExpanded = 0;
+        Heuristic combined = oracle.combinedWith(graph.manhattan());
+        boolean agrees = true;
+        for (int q = 0; q < 100; q++) {
+            MazeGraph.ProcessedGraph query = new MazeGraph.ProcessedGraph(
+                    random.nextInt(graph.getSize()), random.nextInt(graph.getSize()), graph);
+            List<Integer> path = oracle.astar(query, stats);
+            altExpanded += stats.getNodesExpanded();
+            agrees &= path.size() == MazeGraph.astar(query, graph.manhattan(), stats).size();
+            manhattanExpanded += stats.getNodesExpanded();
+            agrees &= path.size() == MazeGraph.astar(query, combined, stats).size();
+            combinedExpanded += stats.getNodesExpanded();
+        }
+        System.out.println("Path lengths agree: " + agrees);
+        System.out.println("Nodes expanded, ALT: " + altExpanded + ", Manhattan: " + manhattanExpanded
+                + ", both: " + combinedExpanded);
+        if (altExpanded > manhattanExpanded) {
+            throw new IllegalStateException("ALT expanded more nodes than the Manhattan distance");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package programming2;
 
 import java.util.*;
+import java.util.function.IntConsumer;
 
 
 /**
@@ -8,27 +9,48 @@ import java.util.*;
  * graph, with no information associated with nodes in the graph.
  */
 class ListGraph implements Graph {
-    // I use sets instead of lists because there should never be more than one edge between nodes (for our purposes)
-    protected List<Set<Integer>> adjacencies;  // the adjacency list
+    // Each list is kept sorted with no duplicates, because there should never be more than one edge
+    // between nodes (for our purposes).  Only the first degrees[i] entries of adjacencies[i] are used.
+    protected int[][] adjacencies;  // the adjacency list
+    protected int[] degrees;        // the number of neighbors of each node
     protected int nodes;    // the number of nodes in the graph
 
+    private static final int[] EMPTY = new int[0];
+
     /**
      * Constructor takes in the number of nodes, and initializes the adjacency matrix
      */
     public ListGraph(int nodes) {
         this.nodes = nodes;
-        adjacencies = new ArrayList<Set<Integer>>();
-        for (int i = 0; i < nodes; i++) {
-            Set<Integer> newList = new TreeSet<Integer>();
-            adjacencies.add(newList);
-        }
+        adjacencies = new int[nodes][];
+        Arrays.fill(adjacencies, EMPTY);
+        degrees = new int[nodes];
     }
 
     @Override
     public void addEdge(int fromNode, int toNode) {
         if ((0 <= fromNode) && (fromNode < nodes) && (0 <= toNode) && (toNode < nodes)) {
-            adjacencies.get(fromNode).add(toNode);
-            adjacencies.get(toNode).add(fromNode);
+            insert(fromNode, toNode);
+            insert(toNode, fromNode);
+        }
+    }
+
+    /**
+     * Inserts toNode into the sorted list of fromNode, unless it is already there
+     */
+    private void insert(int fromNode, int toNode) {
+        int[] list = adjacencies[fromNode];
+        int degree = degrees[fromNode];
+        int index = Arrays.binarySearch(list, 0, degree, toNode);
+        if (index < 0) {
+            index = -(index + 1);
+            if (degree == list.length) {
+                list = Arrays.copyOf(list, Math.max(4, degree * 2));
+                adjacencies[fromNode] = list;
+            }
+            System.arraycopy(list, index, list, index + 1, degree - index);
+            list[index] = toNode;
+            degrees[fromNode] = degree + 1;
         }
     }
 
@@ -40,19 +62,74 @@ class ListGraph implements Graph {
 
     @Override
     public List<Integer> getNeighbors(int node) {
-        return new ArrayList(adjacencies.get(node));
+        List<Integer> neighbors = new ArrayList<Integer>(degrees[node]);
+        for (int i = 0; i < degrees[node]; i++) {
+            neighbors.add(adjacencies[node][i]);
+        }
+        return neighbors;
     }
 
 
     @Override
     public boolean areNeighbors(int node1, int node2) {
         if ((0 <= node1) && (node1 < nodes) && (0 <= node2) && (node2 < nodes)) {
-            Set<Integer> neighbors = adjacencies.get(node1);
-            return neighbors.contains(node2);
+            return Arrays.binarySearch(adjacencies[node1], 0, degrees[node1], node2) >= 0;
         }
         return false;
     }
 
+    @Override
+    public int degree(int node) {
+        return degrees[node];
+    }
+
+    @Override
+    public void forEachNeighbor(int node, IntConsumer action) {
+        int[] list = adjacencies[node];
+        for (int i = 0; i < degrees[node]; i++) {
+            action.accept(list[i]);
+        }
+    }
+
+    @Override
+    public NeighborCursor newCursor() {
+        return new NeighborCursor() {
+            private int[] list = EMPTY;
+            private int index;
+            private int end;
+
+            @Override
+            public NeighborCursor reset(int node) {
+                list = adjacencies[node];
+                index = 0;
+                end = degrees[node];
+                return this;
+            }
+
+            @Override
+            public NeighborCursor reset(int node, int position) {
+                reset(node);
+                index = position;
+                return this;
+            }
+
+            @Override
+            public int position() {
+                return index;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < end;
+            }
+
+            @Override
+            public int next() {
+                return list[index++];
+            }
+        };
+    }
+
 
 
     public static void main(String[] args) {
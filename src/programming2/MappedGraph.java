@@ -0,0 +1,259 @@
+package programming2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable graph read straight out of a memory-mapped file, so loading a graph only maps
+ * the file and reads its header, however big it is.  The operating system pages the neighbor
+ * lists in as they are used, and nothing is copied onto the Java heap.
+ *
+ * The file holds a whole ProcessedGraph in CSR form, written by write(), as big-endian ints:
+ *
+ *     magic, version, nodes, startNode, goalNode, arcs
+ *     offsets[0 .. nodes]      the index in targets of each node's first neighbor
+ *     targets[0 .. arcs - 1]   the neighbor lists of every node, concatenated
+ *
+ * Neighbor lists are written in the order the source graph's cursor gives them, which for every
+ * graph in this package is increasing order, so searches on the mapped graph take the same
+ * paths.  A mapped buffer holds at most 2GB, so the arrays are mapped in segments.
+ */
+public class MappedGraph implements Graph {
+    private static final int MAGIC = 0x4D475246;  // "MGRF"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 6;
+    private static final int SEGMENT_SHIFT = 28;  // 2^28 ints, or 1GB, per mapped segment
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final int nodes;
+    private final int arcs;
+    private final IntBuffer[] offsets;
+    private final IntBuffer[] targets;
+
+    private MappedGraph(int nodes, int arcs, IntBuffer[] offsets, IntBuffer[] targets) {
+        this.nodes = nodes;
+        this.arcs = arcs;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Writes the graph, start and goal of the ProcessedGraph to a file in the format above
+     */
+    public static void write(MazeGraph.ProcessedGraph processedGraph, String filename) throws IOException {
+        Graph graph = processedGraph.graph;
+        int size = graph.getSize();
+        long arcs = 0;
+        for (int i = 0; i < size; i++) {
+            arcs += graph.degree(i);
+        }
+        if (arcs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many arcs for a graph file: " + arcs);
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(processedGraph.startNode);
+            out.writeInt(processedGraph.goalNode);
+            out.writeInt((int) arcs);
+            int offset = 0;
+            for (int i = 0; i < size; i++) {
+                out.writeInt(offset);
+                offset += graph.degree(i);
+            }
+            out.writeInt(offset);
+            NeighborCursor cursor = graph.newCursor();
+            for (int i = 0; i < size; i++) {
+                for (cursor.reset(i); cursor.hasNext(); ) {
+                    out.writeInt(cursor.next());
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Maps a file written by write(), and returns its start, goal and graph.  The mapping stays
+     * valid after the file is closed, until the graph is garbage collected.
+     */
+    public static MazeGraph.ProcessedGraph load(String filename) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filename, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4 * HEADER_INTS).asIntBuffer();
+            if (header.get(0) != MAGIC || header.get(1) != VERSION) {
+                throw new IOException(filename + " is not a version " + VERSION + " graph file");
+            }
+            int nodes = header.get(2);
+            int arcs = header.get(5);
+            long offsetsStart = 4L * HEADER_INTS;
+            long targetsStart = offsetsStart + 4L * (nodes + 1);
+            if (channel.size() != targetsStart + 4L * arcs) {
+                throw new IOException(filename + " is truncated or has extra data");
+            }
+            MappedGraph graph = new MappedGraph(nodes, arcs,
+                    map(channel, offsetsStart, nodes + 1), map(channel, targetsStart, arcs));
+            return new MazeGraph.ProcessedGraph(header.get(3), header.get(4), graph);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Maps count ints starting at the given byte position, in segments of 2^SEGMENT_SHIFT ints
+     */
+    private static IntBuffer[] map(FileChannel channel, long position, int count) throws IOException {
+        IntBuffer[] segments = new IntBuffer[Math.max(1, (int) (((long) count + SEGMENT_MASK) >>> SEGMENT_SHIFT))];
+        for (int i = 0; i < segments.length; i++) {
+            long first = (long) i << SEGMENT_SHIFT;
+            long length = Math.min(count - first, 1L << SEGMENT_SHIFT);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * first, 4 * length).asIntBuffer();
+        }
+        return segments;
+    }
+
+    private int offset(int node) {
+        return offsets[node >>> SEGMENT_SHIFT].get(node & SEGMENT_MASK);
+    }
+
+    private int target(int index) {
+        return targets[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+    }
+
+    /**
+     * Mapped graphs are read-only, so this always throws an UnsupportedOperationException.
+     */
+    @Override
+    public void addEdge(int fromNode, int toNode) {
+        throw new UnsupportedOperationException("MappedGraph is read-only");
+    }
+
+    @Override
+    public int getSize() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of arcs stored in the graph.  Every undirected edge counts twice.
+     */
+    public int getArcCount() {
+        return arcs;
+    }
+
+    @Override
+    public List<Integer> getNeighbors(int node) {
+        List<Integer> neighbors = new ArrayList<Integer>();
+        if ((0 <= node) && (node < nodes)) {
+            for (int i = offset(node); i < offset(node + 1); i++) {
+                neighbors.add(target(i));
+            }
+        }
+        return neighbors;
+    }
+
+    /**
+     * Binary searches the neighbor list of node1 for node2.
+     */
+    @Override
+    public boolean areNeighbors(int node1, int node2) {
+        if ((0 <= node1) && (node1 < nodes) && (0 <= node2) && (node2 < nodes)) {
+            int low = offset(node1);
+            int high = offset(node1 + 1) - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int neighbor = target(middle);
+                if (neighbor < node2) {
+                    low = middle + 1;
+                } else if (neighbor > node2) {
+                    high = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int degree(int node) {
+        return offset(node + 1) - offset(node);
+    }
+
+    @Override
+    public void forEachNeighbor(int node, IntConsumer action) {
+        for (int i = offset(node); i < offset(node + 1); i++) {
+            action.accept(target(i));
+        }
+    }
+
+    @Override
+    public NeighborCursor newCursor() {
+        return new NeighborCursor() {
+            private int index;
+            private int end;
+
+            @Override
+            public NeighborCursor reset(int node) {
+                index = offset(node);
+                end = offset(node + 1);
+                return this;
+            }
+
+            @Override
+            public NeighborCursor reset(int node, int position) {
+                index = position;
+                end = offset(node + 1);
+                return this;
+            }
+
+            @Override
+            public int position() {
+                return index;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < end;
+            }
+
+            @Override
+            public int next() {
+                return target(index++);
+            }
+        };
+    }
+
+    /**
+     * Converts each maze named in the arguments to a temporary graph file, then compares
+     * the time to parse the maze with the time to map the file.
+     */
+    public static void main(String[] args) throws IOException {
+        for (String mazeFile : args) {
+            File temp = File.createTempFile("maze", ".graph");
+            temp.deleteOnExit();
+            String graphFile = temp.getPath();
+            long start = System.nanoTime();
+            MazeGraph.ProcessedGraph parsed = MazeGraph.mazeToGraph(MazeGraph.readMaze(mazeFile), true);
+            long parseNanos = System.nanoTime() - start;
+            write(parsed, graphFile);
+            start = System.nanoTime();
+            MazeGraph.ProcessedGraph mapped = load(graphFile);
+            long loadNanos = System.nanoTime() - start;
+            System.out.println(mazeFile + ": " + mapped.graph.getSize() + " nodes, parsed in "
+                    + parseNanos / 1000 + " us, mapped in " + loadNanos / 1000 + " us");
+            System.out.println("BFS agrees: " + MazeGraph.bfs(parsed).equals(MazeGraph.bfs(mapped)));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Timing experiments for the maze graph code on generated mazes of increasing size.
+ * Run the main method to print the results.
+ */
+public class MazeBenchmark {
+
+    /**
+     * Builds a square maze with a solid outer wall, about a third of the inside squares walled
+     * off at random, the start in the top left corner and the goal in the bottom right.
+     */
+    public static List<String> randomMaze(int size, long seed) {
+        return randomMaze(size, 1.0 / 3, seed);
+    }
+
+    /**
+     * Builds a random square maze as above, with the given fraction of the inside squares walled off.
+     */
+    public static List<String> randomMaze(int size, double wallFraction, long seed) {
+        Random random = new Random(seed);
+        List<String> maze = new ArrayList<String>(size);
+        StringBuilder sb = new StringBuilder(size);
+        for (int row = 0; row < size; row++) {
+            sb.setLength(0);
+            for (int col = 0; col < size; col++) {
+                if (row == 0 || col == 0 || row == size - 1 || col == size - 1) {
+                    sb.append('X');
+                } else if (row == 1 && col == 1) {
+                    sb.append('S');
+                } else if (row == size - 2 && col == size - 2) {
+                    sb.append('G');
+                } else {
+                    sb.append(random.nextDouble() < wallFraction ? 'X' : ' ');
+                }
+            }
+            maze.add(sb.toString());
+        }
+        return maze;
+    }
+
+    /**
+     * Times mazeToGraph for ListGraph and CsrGraph output against the maze size.
+     * Since construction is a single linear pass, doubling the side length should
+     * roughly quadruple the time.
+     */
+    public static void benchmarkConstruction() {
+        System.out.println("Graph construction:");
+        for (int size = 250; size <= 4000; size *= 2) {
+            List<String> maze = randomMaze(size, size);
+            System.gc();
+            long start = System.nanoTime();
+            MazeGraph.ProcessedGraph listMaze = MazeGraph.mazeToGraph(maze, false);
+            long listElapsed = System.nanoTime() - start;
+            System.gc();
+            start = System.nanoTime();
+            MazeGraph.ProcessedGraph csrMaze = MazeGraph.mazeToGraph(maze, true);
+            long csrElapsed = System.nanoTime() - start;
+            System.out.println("Size " + size + "x" + size + " (" + listMaze.graph.getSize() + " nodes): ListGraph "
+                    + listElapsed / 1000000 + " ms, CsrGraph " + csrElapsed / 1000000 + " ms");
+        }
+        System.out.println();
+    }
+
+    /**
+     * Times a full BFS tree over a large, mostly open maze on the sequential engine and on
+     * ParallelBfs with increasing numbers of threads, and reports the speedup of each.
+     */
+    public static void benchmarkParallelBfs() {
+        System.out.println("Parallel BFS:");
+        MazeGraph.ProcessedGraph maze = MazeGraph.mazeToGraph(randomMaze(3000, 0.2, 1), true);
+        int repetitions = 5;
+        long sequential = Long.MAX_VALUE;
+        for (int i = 0; i < repetitions; i++) {
+            long start = System.nanoTime();
+            MazeGraph.bfsTree(maze.graph, maze.startNode, -1);
+            sequential = Math.min(sequential, System.nanoTime() - start);
+        }
+        System.out.println("Sequential: " + sequential / 1000000 + " ms");
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long best = Long.MAX_VALUE;
+            try (ParallelBfs engine = new ParallelBfs(threads)) {
+                for (int i = 0; i < repetitions; i++) {
+                    long start = System.nanoTime();
+                    engine.search(maze.graph, maze.startNode, -1);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+            }
+            System.out.printf("%d threads: %d ms, speedup %.2f%n", threads, best / 1000000, (double) sequential / best);
+        }
+        System.out.println();
+    }
+
+    /**
+     * Times a full BFS tree over a large maze graph in its row-major numbering, in a random
+     * numbering standing in for graphs built in arbitrary order, and after renumbering each in
+     * BFS and reverse Cuthill-McKee order, along with the bandwidth of each numbering.
+     */
+    public static void benchmarkReordering() {
+        System.out.println("Node reordering:");
+        MazeGraph.ProcessedGraph maze = MazeGraph.mazeToGraph(randomMaze(3000, 0.2, 1), true);
+        int size = maze.graph.getSize();
+        int[] shuffle = new int[size];
+        for (int i = 0; i < size; i++) {
+            shuffle[i] = i;
+        }
+        Random random = new Random(1);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = shuffle[i];
+            shuffle[i] = shuffle[j];
+            shuffle[j] = temp;
+        }
+        GraphReordering shuffled = new GraphReordering(maze.graph, shuffle);
+        MazeGraph.ProcessedGraph shuffledMaze = shuffled.translate(maze);
+        benchmarkOrder("Row-major", maze);
+        benchmarkOrder("Row-major, BFS order", GraphReordering.bfsOrder(maze.graph, maze.startNode).translate(maze));
+        benchmarkOrder("Row-major, RCM", GraphReordering.reverseCuthillMcKee(maze.graph).translate(maze));
+        benchmarkOrder("Shuffled", shuffledMaze);
+        benchmarkOrder("Shuffled, BFS order",
+                GraphReordering.bfsOrder(shuffledMaze.graph, shuffledMaze.startNode).translate(shuffledMaze));
+        benchmarkOrder("Shuffled, RCM", GraphReordering.reverseCuthillMcKee(shuffledMaze.graph).translate(shuffledMaze));
+        System.out.println();
+    }
+
+    private static void benchmarkOrder(String name, MazeGraph.ProcessedGraph maze) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            MazeGraph.bfsTree(maze.graph, maze.startNode, -1);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(name + ": BFS " + best / 1000000 + " ms, bandwidth " + GraphReordering.bandwidth(maze.graph));
+    }
+
+    /**
+     * Times a full BFS, and a bidirectional BFS from the start to the goal, on a random maze and
+     * generated mazes of about the same size that are shaped very differently: perfect mazes of
+     * long winding corridors, and one of large open rooms.
+     */
+    public static void benchmarkGeneratedMazes() {
+        System.out.println("Generated mazes:");
+        String[] names = {"Random", "Kruskal", "Prim", "Open rooms"};
+        for (int kind = 0; kind < names.length; kind++) {
+            MazeGraph.ProcessedGraph maze = kind == 0 ? MazeGraph.mazeToGridGraph(randomMaze(2001, 0.2, 1))
+                    : MazeGenerator.toProcessedGraph(kind == 1 ? MazeGenerator.kruskal(1000, 1000, 1)
+                    : kind == 2 ? MazeGenerator.prim(1000, 1000, 1) : MazeGenerator.openRooms(100, 100, 19, 1));
+            long start = System.nanoTime();
+            MazeGraph.bfsTree(maze.graph, maze.startNode, -1);
+            long bfs = System.nanoTime() - start;
+            start = System.nanoTime();
+            int length = MazeGraph.bidirectionalBfs(maze).size();
+            long bidirectional = System.nanoTime() - start;
+            System.out.println(names[kind] + " (" + maze.graph.getSize() + " open squares, path " + length + "): BFS tree "
+                    + bfs / 1000000 + " ms, bidirectional BFS " + bidirectional / 1000000 + " ms");
+        }
+        System.out.println();
+    }
+
+    public static void main(String[] args) {
+        benchmarkConstruction();
+        benchmarkParallelBfs();
+        benchmarkReordering();
+        benchmarkGeneratedMazes();
+    }
+}
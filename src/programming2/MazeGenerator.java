@@ -0,0 +1,308 @@
+package programming2;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generators of large mazes, for load tests that need more than the files in mazes/.
+ * The same arguments always give the same maze.
+ *
+ * Mazes are generated straight into a BitGrid, at one bit per square, with a solid outer wall,
+ * the start in the top left corner at (1, 1) and the goal in the bottom right, and can then be
+ * streamed to a file a row at a time in the format readMaze and MazeReader read, or wrapped in
+ * a GridGraph, without ever building the maze as strings.
+ *
+ * Perfect mazes, with exactly one path between any two squares, come from randomized Kruskal's
+ * or Prim's algorithm on a grid of cells, each cell an open square at odd coordinates with
+ * walls between them.  Both have many short dead ends.  Kruskal's mazes are uniform across the
+ * grid, with a long, winding path between the corners; Prim's grow outward from the start, with
+ * even more short dead ends branching off a much shorter path.  Both take an int per cell while
+ * they run.
+ */
+public class MazeGenerator {
+
+    /**
+     * Generates a perfect maze of cellRows by cellCols cells with randomized Kruskal's
+     * algorithm: every wall between two cells, in random order, is knocked down if the cells
+     * are not yet connected.  The grid is 2 * cellRows + 1 by 2 * cellCols + 1 squares.
+     */
+    public static BitGrid kruskal(int cellRows, int cellCols, long seed) {
+        int cells = cellCount(cellRows, cellCols);
+        Random random = new Random(seed);
+        BitGrid grid = cellGrid(cellRows, cellCols);
+        // wall 2 * cell is to the right of the cell, and 2 * cell + 1 below it
+        int[] walls = new int[2 * cells];
+        int count = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (cell % cellCols < cellCols - 1) {
+                walls[count++] = 2 * cell;
+            }
+            if (cell / cellCols < cellRows - 1) {
+                walls[count++] = 2 * cell + 1;
+            }
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = walls[i];
+            walls[i] = walls[j];
+            walls[j] = temp;
+        }
+        int[] parents = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            parents[cell] = cell;
+        }
+        for (int i = 0; i < count; i++) {
+            int cell = walls[i] >>> 1;
+            boolean down = (walls[i] & 1) != 0;
+            int root1 = find(parents, cell);
+            int root2 = find(parents, down ? cell + cellCols : cell + 1);
+            if (root1 != root2) {
+                parents[root1] = root2;
+                int row = 2 * (cell / cellCols) + 1;
+                int col = 2 * (cell % cellCols) + 1;
+                grid.setOpen(down ? row + 1 : row, down ? col : col + 1, true);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the number of cells in a cellRows by cellCols maze, or throws if there are none,
+     * or if there are too many for an array of two walls per cell
+     */
+    private static int cellCount(int cellRows, int cellCols) {
+        if (cellRows < 1 || cellCols < 1) {
+            throw new IllegalArgumentException("A maze needs at least one cell, not " + cellRows + "x" + cellCols);
+        }
+        long cells = (long) cellRows * cellCols;
+        if (2 * cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A maze of " + cells + " cells is more than an array can hold");
+        }
+        return (int) cells;
+    }
+
+    private static int find(int[] parents, int cell) {
+        while (parents[cell] != cell) {
+            parents[cell] = parents[parents[cell]];
+            cell = parents[cell];
+        }
+        return cell;
+    }
+
+    /**
+     * Generates a perfect maze of cellRows by cellCols cells with randomized Prim's algorithm:
+     * starting from the top left cell, a random cell next to the maze is joined to a random
+     * neighbor already in it, until every cell is in.
+     */
+    public static BitGrid prim(int cellRows, int cellCols, long seed) {
+        int cells = cellCount(cellRows, cellCols);
+        Random random = new Random(seed);
+        BitGrid grid = new BitGrid(2 * cellRows + 1, 2 * cellCols + 1);
+        int[] frontier = new int[Math.min(cells, 16)];
+        int count = 0;
+        BitSet listed = new BitSet(cells);
+        BitSet inMaze = new BitSet(cells);
+        int[] neighbors = new int[4];
+        inMaze.set(0);
+        grid.setOpen(1, 1, true);
+        listed.set(0);
+        int cell = 0;
+        while (true) {
+            // list the neighbors of the newest cell that are not in the maze yet
+            int row = cell / cellCols;
+            int col = cell % cellCols;
+            int found = cellNeighbors(row, col, cellRows, cellCols, neighbors);
+            for (int i = 0; i < found; i++) {
+                if (!listed.get(neighbors[i])) {
+                    listed.set(neighbors[i]);
+                    if (count == frontier.length) {
+                        frontier = Arrays.copyOf(frontier, Math.min(cells, count * 2));
+                    }
+                    frontier[count++] = neighbors[i];
+                }
+            }
+            if (count == 0) {
+                break;
+            }
+            int pick = random.nextInt(count);
+            cell = frontier[pick];
+            frontier[pick] = frontier[--count];
+            // join it to a random neighbor already in the maze
+            row = cell / cellCols;
+            col = cell % cellCols;
+            found = cellNeighbors(row, col, cellRows, cellCols, neighbors);
+            int inside = 0;
+            for (int i = 0; i < found; i++) {
+                if (inMaze.get(neighbors[i])) {
+                    neighbors[inside++] = neighbors[i];
+                }
+            }
+            int joined = neighbors[random.nextInt(inside)];
+            inMaze.set(cell);
+            grid.setOpen(2 * row + 1, 2 * col + 1, true);
+            grid.setOpen(row + joined / cellCols + 1, col + joined % cellCols + 1, true);
+        }
+        return grid;
+    }
+
+    /**
+     * Fills neighbors with the cells next to the cell, up, left, right and down, and returns how many there are
+     */
+    private static int cellNeighbors(int row, int col, int cellRows, int cellCols, int[] neighbors) {
+        int found = 0;
+        if (row > 0) {
+            neighbors[found++] = (row - 1) * cellCols + col;
+        }
+        if (col > 0) {
+            neighbors[found++] = row * cellCols + col - 1;
+        }
+        if (col < cellCols - 1) {
+            neighbors[found++] = row * cellCols + col + 1;
+        }
+        if (row < cellRows - 1) {
+            neighbors[found++] = (row + 1) * cellCols + col;
+        }
+        return found;
+    }
+
+    /**
+     * Returns a grid with each cell of a cellRows by cellCols grid open, and every wall between them closed
+     */
+    private static BitGrid cellGrid(int cellRows, int cellCols) {
+        BitGrid grid = new BitGrid(2 * cellRows + 1, 2 * cellCols + 1);
+        for (int row = 0; row < cellRows; row++) {
+            for (int col = 0; col < cellCols; col++) {
+                grid.setOpen(2 * row + 1, 2 * col + 1, true);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Generates a maze of roomRows by roomCols open rooms, each roomSize squares across, walled
+     * off from each other, with a door at a random place in each wall between two neighboring
+     * rooms.  Unlike a perfect maze it has many paths between any two squares, and large open
+     * areas for searches to spread into.
+     */
+    public static BitGrid openRooms(int roomRows, int roomCols, int roomSize, long seed) {
+        Random random = new Random(seed);
+        int pitch = roomSize + 1;
+        BitGrid grid = new BitGrid(roomRows * pitch + 1, roomCols * pitch + 1);
+        for (int room = 0; room < roomRows * roomCols; room++) {
+            int top = (room / roomCols) * pitch + 1;
+            int left = (room % roomCols) * pitch + 1;
+            for (int row = top; row < top + roomSize; row++) {
+                for (int col = left; col < left + roomSize; col++) {
+                    grid.setOpen(row, col, true);
+                }
+            }
+            if (room % roomCols < roomCols - 1) {
+                grid.setOpen(top + random.nextInt(roomSize), left + roomSize, true);
+            }
+            if (room / roomCols < roomRows - 1) {
+                grid.setOpen(top + roomSize, left + random.nextInt(roomSize), true);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the characters of one row of a generated maze, with S at the start and G at the goal
+     */
+    private static char[] row(BitGrid grid, int row, char[] line) {
+        for (int col = 0; col < line.length; col++) {
+            line[col] = grid.isOpen(row, col) ? ' ' : 'X';
+        }
+        if (row == 1) {
+            line[1] = 'S';
+        }
+        if (row == grid.getRows() - 2) {
+            line[line.length - 2] = 'G';
+        }
+        return line;
+    }
+
+    /**
+     * Writes a generated maze to a file a row at a time, in the format of the files in mazes/
+     */
+    public static void write(BitGrid grid, String path) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(path), 1 << 16);
+        try {
+            char[] line = new char[grid.getCols()];
+            for (int row = 0; row < grid.getRows(); row++) {
+                writer.write(row(grid, row, line));
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Returns a generated maze as a list of strings, as readMaze would read it from a file
+     */
+    public static List<String> toMazeList(BitGrid grid) {
+        List<String> maze = new ArrayList<String>(grid.getRows());
+        char[] line = new char[grid.getCols()];
+        for (int row = 0; row < grid.getRows(); row++) {
+            maze.add(new String(row(grid, row, line)));
+        }
+        return maze;
+    }
+
+    /**
+     * Wraps a generated maze in a GridGraph, with its start and goal nodes
+     */
+    public static MazeGraph.ProcessedGraph toProcessedGraph(BitGrid grid) {
+        GridGraph graph = new GridGraph(grid);
+        return new MazeGraph.ProcessedGraph(graph.getNode(1, 1), graph.getNode(grid.getRows() - 2, grid.getCols() - 2), graph);
+    }
+
+    /**
+     * Generates a maze of each kind, checks that the perfect ones are trees, and that a maze
+     * written to a file reads back the same.
+     */
+    public static void main(String[] args) throws IOException {
+        int cells = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long start = System.currentTimeMillis();
+        BitGrid kruskal = kruskal(cells, cells, 1);
+        System.out.println("Kruskal " + cells + "x" + cells + " cells: " + (System.currentTimeMillis() - start) + " ms");
+        start = System.currentTimeMillis();
+        BitGrid prim = prim(cells, cells, 1);
+        System.out.println("Prim " + cells + "x" + cells + " cells: " + (System.currentTimeMillis() - start) + " ms");
+        start = System.currentTimeMillis();
+        BitGrid rooms = openRooms(cells / 10, cells / 10, 19, 1);
+        System.out.println("Open rooms " + rooms.getRows() + "x" + rooms.getCols() + ": " + (System.currentTimeMillis() - start) + " ms");
+        String[] names = {"Kruskal", "Prim", "Open rooms"};
+        BitGrid[] grids = {kruskal, prim, rooms};
+        for (int i = 0; i < grids.length; i++) {
+            MazeGraph.ProcessedGraph maze = toProcessedGraph(grids[i]);
+            Graph graph = maze.graph;
+            long arcs = 0;
+            for (int node = 0; node < graph.getSize(); node++) {
+                arcs += graph.degree(node);
+            }
+            // a tree is connected with one edge fewer than it has nodes
+            boolean tree = new ConnectedComponents(graph).getComponentCount() == 1 && arcs / 2 == graph.getSize() - 1;
+            System.out.println(names[i] + ": " + graph.getSize() + " open squares, a tree: " + tree
+                    + ", path length " + MazeGraph.bfs(maze).size());
+        }
+        File file = File.createTempFile("maze", ".txt");
+        try {
+            write(kruskal, file.getPath());
+            MazeGraph.ProcessedGraph read = MazeReader.read(file.getPath());
+            MazeGraph.ProcessedGraph generated = toProcessedGraph(kruskal);
+            System.out.println("Written and read back: " + (file.length() >> 20) + " MB, same path: "
+                    + MazeGraph.bfs(read).equals(MazeGraph.bfs(generated)));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -4,7 +4,6 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * File: MazeGraph.java
@@ -71,6 +70,19 @@ public class MazeGraph {
         }
     }
 
+    /**
+     * A path found by a weighted search, with its total cost
+     */
+    public static class CostedPath {
+        public List<Integer> path;
+        public long cost;
+
+        public CostedPath(List<Integer> path, long cost) {
+            this.path = path;
+            this.cost = cost;
+        }
+    }
+
     /**
      * Takes in a filename and reads the maze found there. Mazes are a series
      * of lines. It is assumed that the outline of the maze will all be filled in;
@@ -104,38 +116,182 @@ public class MazeGraph {
     /**
      * Every open square in the maze becomes a node in the graph. It will have
      * an edge to every open square that is immediately to the left, right,
-     * above, or below it. First the program must determine all the open squares,
-     * giving each a (row, col) coordinate. The node number for each square
-     * corresponds to the position of its coordinates in the open square list.
+     * above, or below it. The node number for each square is its position in
+     * row-major order among the open squares, the same as in collectOpenSquares.
      */
     public static ProcessedGraph mazeToGraph(List<String> mazelist) {
-        ProcessedMaze maze = collectOpenSquares(mazelist);
-        if (maze != null) {
-            int numOpen = maze.openSquares.size();
-            Graph mazegraph = new ListGraph(numOpen);
-
-            for (int i = 0; i < numOpen; i++) {
-                int x = maze.openSquares.get(i).x;
-                int y = maze.openSquares.get(i).y;
-                for (int j = -1; j <= 1; j += 2) {
-                    int k = 0;
-                    Position neigh = new Position(x+j, y+k);
-                    if (maze.openSquares.contains(neigh)) {
-                        int neighIdx = maze.openSquares.lastIndexOf(neigh);
-                        mazegraph.addEdge(i, neighIdx);
+        return mazeToGraph(mazelist, false);
+    }
+
+    /**
+     * Builds the maze graph as above, as either a ListGraph or, if csr is true, a CsrGraph.
+     * Rather than searching a list of open squares for each neighbor, it keeps a table of
+     * node numbers for the current and previous rows, indexed by column. Each open square
+     * is linked to the squares to its left and above it in O(1), so the whole graph is
+     * built in one linear pass over the maze.
+     */
+    public static ProcessedGraph mazeToGraph(List<String> mazelist, boolean csr) {
+        int numOpen = 0;
+        int cols = 0;
+        for (String row : mazelist) {
+            cols = Math.max(cols, row.length());
+            for (int col = 0; col < row.length(); col++) {
+                if (Character.toUpperCase(row.charAt(col)) != 'X') {
+                    numOpen++;
+                }
+            }
+        }
+        ListGraph listGraph = csr ? null : new ListGraph(numOpen);
+        CsrGraph.Builder builder = csr ? new CsrGraph.Builder(numOpen, 4 * numOpen) : null;
+        int[] above = new int[cols];    // node numbers of the previous row, or -1 for walls
+        int[] current = new int[cols];  // node numbers of the current row, or -1 for walls
+        Arrays.fill(above, -1);
+        int startPos = -1;
+        int goalPos = -1;
+        int node = 0;
+        for (String row : mazelist) {
+            Arrays.fill(current, -1);
+            for (int col = 0; col < row.length(); col++) {
+                char val = Character.toUpperCase(row.charAt(col));
+                if (val != 'X') {
+                    if (val == 'S') {
+                        startPos = node;
+                    } else if (val == 'G') {
+                        goalPos = node;
                     }
+                    current[col] = node;
+                    if (col > 0 && current[col - 1] != -1) {
+                        if (csr) {
+                            builder.addEdge(current[col - 1], node);
+                        } else {
+                            listGraph.addEdge(current[col - 1], node);
+                        }
+                    }
+                    if (above[col] != -1) {
+                        if (csr) {
+                            builder.addEdge(above[col], node);
+                        } else {
+                            listGraph.addEdge(above[col], node);
+                        }
+                    }
+                    node++;
                 }
-                for (int k = -1; k <= 1; k += 2) {
-                    int j = 0;
-                    Position neigh = new Position(x+j, y+k);
-                    if (maze.openSquares.contains(neigh)) {
-                        int neighIdx = maze.openSquares.lastIndexOf(neigh);
-                        mazegraph.addEdge(i, neighIdx);
+            }
+            int[] temp = above;
+            above = current;
+            current = temp;
+        }
+        if (startPos != -1 && goalPos != -1) {
+            return new ProcessedGraph(startPos, goalPos, csr ? builder.build() : listGraph);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Builds the maze as a GridGraph, which stores one bit per square instead of adjacency
+     * lists and computes neighbors on the fly. Node numbers are the same as in mazeToGraph.
+     */
+    public static ProcessedGraph mazeToGridGraph(List<String> mazelist) {
+        int cols = 0;
+        for (String row : mazelist) {
+            cols = Math.max(cols, row.length());
+        }
+        BitGrid grid = new BitGrid(mazelist.size(), cols);
+        int startRow = -1, startCol = -1;
+        int goalRow = -1, goalCol = -1;
+        for (int row = 0; row < mazelist.size(); row++) {
+            String rowString = mazelist.get(row);
+            for (int col = 0; col < rowString.length(); col++) {
+                char val = Character.toUpperCase(rowString.charAt(col));
+                if (val != 'X') {
+                    if (val == 'S') {
+                        startRow = row;
+                        startCol = col;
+                    } else if (val == 'G') {
+                        goalRow = row;
+                        goalCol = col;
                     }
+                    grid.setOpen(row, col, true);
                 }
+            }
+        }
+        if (startRow != -1 && goalRow != -1) {
+            GridGraph graph = new GridGraph(grid);
+            return new ProcessedGraph(graph.getNode(startRow, startCol), graph.getNode(goalRow, goalCol), graph);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cost of stepping onto a square.  Digits give the terrain cost, from 0 to 9,
+     * and every other open square, including S and G, costs 1.
+     */
+    public static int squareCost(char val) {
+        return ('0' <= val && val <= '9') ? val - '0' : 1;
+    }
 
+    /**
+     * Builds the maze as a WeightedCsrGraph for terrain mazes, with the same node numbers as
+     * mazeToGraph.  Every step costs the squareCost of the square it steps onto, so the arcs
+     * between two squares of different terrain have different weights each way, and the cost
+     * of a path is the total cost of the squares it enters after the start.
+     */
+    public static ProcessedGraph mazeToWeightedGraph(List<String> mazelist) {
+        int numOpen = 0;
+        int cols = 0;
+        for (String row : mazelist) {
+            cols = Math.max(cols, row.length());
+            for (int col = 0; col < row.length(); col++) {
+                if (Character.toUpperCase(row.charAt(col)) != 'X') {
+                    numOpen++;
+                }
             }
-            return new ProcessedGraph(maze.startNode, maze.goalNode, mazegraph);
+        }
+        WeightedCsrGraph.Builder builder = new WeightedCsrGraph.Builder(numOpen, 4 * numOpen);
+        // node numbers and costs of the squares in the previous and current rows, like mazeToGraph
+        int[] above = new int[cols];
+        int[] current = new int[cols];
+        int[] aboveCosts = new int[cols];
+        int[] currentCosts = new int[cols];
+        Arrays.fill(above, -1);
+        int startPos = -1;
+        int goalPos = -1;
+        int node = 0;
+        for (String row : mazelist) {
+            Arrays.fill(current, -1);
+            for (int col = 0; col < row.length(); col++) {
+                char val = Character.toUpperCase(row.charAt(col));
+                if (val != 'X') {
+                    if (val == 'S') {
+                        startPos = node;
+                    } else if (val == 'G') {
+                        goalPos = node;
+                    }
+                    int cost = squareCost(val);
+                    current[col] = node;
+                    currentCosts[col] = cost;
+                    if (col > 0 && current[col - 1] != -1) {
+                        builder.addArc(current[col - 1], node, cost);
+                        builder.addArc(node, current[col - 1], currentCosts[col - 1]);
+                    }
+                    if (above[col] != -1) {
+                        builder.addArc(above[col], node, cost);
+                        builder.addArc(node, above[col], aboveCosts[col]);
+                    }
+                    node++;
+                }
+            }
+            int[] temp = above;
+            above = current;
+            current = temp;
+            temp = aboveCosts;
+            aboveCosts = currentCosts;
+            currentCosts = temp;
+        }
+        if (startPos != -1 && goalPos != -1) {
+            return new ProcessedGraph(startPos, goalPos, builder.build());
         } else {
             return null;
         }
@@ -221,49 +377,83 @@ public class MazeGraph {
      * than the start node index.
      */
     public static List<Integer> dfs(ProcessedGraph processedGraph) {
-        Graph graph = processedGraph.graph;
-        boolean[] marked = new boolean[graph.getSize()];
-        Arrays.fill(marked, false);
-        List<Integer> path = dfsHelper(processedGraph.startNode, processedGraph.goalNode, graph, marked);
-        System.out.println("Number visited: " + countMarked(marked));
-        return path;
+        return dfs(processedGraph, null);
     }
 
     /**
-     * This helper method actually runs the recursive DFS.
-     * The graph is passed through to define structure, and is unchanged.
-     * At each iteration, the current node is marked (if not already marked)
-     * @param currentNode
-     * @param goalNode
-     * @param graph
-     * @param marked
-     * @return
+     * Runs DFS as above, reporting its progress to the listener unless it is null.
+     *
+     * The search keeps its own stack rather than recursing, so it cannot overflow the thread
+     * stack on long corridors.  Each stack frame is a node and the position of a cursor in
+     * its neighbors, so a node's neighbors are each looked at once, in the same order as the
+     * recursive version, and the stack from start to top is always the current path.  Time
+     * and memory are linear in the size of the graph.
      */
-    private static List<Integer> dfsHelper(int currentNode, int goalNode, Graph graph, boolean[] marked) {
-        if (marked[currentNode]) {
-            // We found a node that already was visited, so stop
-            return new ArrayList<Integer>();
-        } else {
-            marked[currentNode] = true;
-            List<Integer> path = new ArrayList<Integer>();
-            if (currentNode == goalNode) {
-                // If we find the node, start building the path
-                path.add(currentNode);
-            } else {
-                for (int i : graph.getNeighbors(currentNode)) {
-                    // Recurse on the next node
-                    path = dfsHelper(i, goalNode, graph, marked);
-                    // If path is not empty, we must have found the goal
-                    if (!path.isEmpty()) {
-                        // Therefore, keep building the path
-                        path.add(0, currentNode);
-                        // and stop iterating
-                        return path;
-                    }
+    public static List<Integer> dfs(ProcessedGraph processedGraph, SearchListener listener) {
+        Graph graph = processedGraph.graph;
+        int startNode = processedGraph.startNode;
+        int goalNode = processedGraph.goalNode;
+        boolean[] marked = new boolean[graph.getSize()];
+        // Every node is pushed at most once, since it is marked when pushed
+        int[] stack = new int[graph.getSize()];
+        int[] positions = new int[graph.getSize()];
+        NeighborCursor cursor = graph.newCursor();
+        if (listener != null) {
+            listener.searchStarted();
+            listener.nodesExpanded(1);
+            listener.frontierSize(1);
+        }
+        marked[startNode] = true;
+        stack[0] = startNode;
+        positions[0] = cursor.reset(startNode).position();
+        int top = 1;
+        if (startNode == goalNode) {
+            return finishDfs(stack, top, listener);
+        }
+        while (top > 0) {
+            // Resume the node on top of the stack at its next unmarked neighbor
+            cursor.reset(stack[top - 1], positions[top - 1]);
+            int nextNode = -1;
+            while (cursor.hasNext()) {
+                int i = cursor.next();
+                if (!marked[i]) {
+                    nextNode = i;
+                    break;
                 }
             }
-            return path;
+            if (nextNode == -1) {
+                // Dead end, so back up
+                top--;
+                continue;
+            }
+            positions[top - 1] = cursor.position();
+            marked[nextNode] = true;
+            stack[top] = nextNode;
+            positions[top] = cursor.reset(nextNode).position();
+            top++;
+            if (listener != null) {
+                listener.nodesExpanded(1);
+                listener.frontierSize(top);
+            }
+            if (nextNode == goalNode) {
+                return finishDfs(stack, top, listener);
+            }
         }
+        return finishDfs(stack, 0, listener);
+    }
+
+    /**
+     * Turns the first length nodes of the DFS stack into the path it returns
+     */
+    private static List<Integer> finishDfs(int[] stack, int length, SearchListener listener) {
+        List<Integer> path = new ArrayList<Integer>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(stack[i]);
+        }
+        if (listener != null) {
+            listener.searchFinished(path);
+        }
+        return path;
     }
 
     /**
@@ -277,11 +467,21 @@ public class MazeGraph {
      * @return
      */
     public static List<Integer> dfs2(ProcessedGraph processedGraph) {
+        return dfs2(processedGraph, null);
+    }
+
+    /**
+     * Runs the second DFS, reporting its progress to the listener unless it is null
+     */
+    public static List<Integer> dfs2(ProcessedGraph processedGraph, SearchListener listener) {
         Graph graph = processedGraph.graph;
         boolean[] marked = new boolean[graph.getSize()];
         Arrays.fill(marked, false);
-        // Queue for the BFS algorithm
-        Stack<Integer> stack = new Stack<Integer>();
+        // Stack for the DFS algorithm.  Every node is pushed at most once, since it is
+        // marked when pushed, so an array the size of the graph never overflows.
+        int[] stack = new int[graph.getSize()];
+        int top = 0;
+        NeighborCursor cursor = graph.newCursor();
         // Array to keep track of the parents of each node in the BFS.
         // It allows for the ability to backtrack from the goal to the
         // start if and when the goal node is found.
@@ -289,34 +489,49 @@ public class MazeGraph {
         Arrays.fill(parents, -1);
         int startNode = processedGraph.startNode;
         int goalNode = processedGraph.goalNode;
-        stack.push(startNode);
+        if (listener != null) {
+            listener.searchStarted();
+        }
+        stack[top++] = startNode;
         marked[startNode] = true;
-        while (!stack.isEmpty()) {
-//            System.out.println(stack);
-            int currentNode = stack.pop();
+        while (top > 0) {
+            int currentNode = stack[--top];
+            if (listener != null) {
+                listener.nodesExpanded(1);
+            }
             if (currentNode == goalNode) {
-                List<Integer> path = new ArrayList<Integer>();
-                while (currentNode != startNode) {
-                    path.add(0, currentNode);
-                    currentNode = parents[currentNode];
+                List<Integer> path = tracePath(parents, startNode, goalNode);
+                if (listener != null) {
+                    listener.searchFinished(path);
                 }
-                path.add(0, startNode);
-                System.out.println("Number visited: " + countMarked(marked));
                 return path;
             } else {
-                List<Integer> neighbors = graph.getNeighbors(currentNode);
-                Collections.reverse(neighbors);
-                for (int i : neighbors) {
+                int first = top;
+                for (cursor.reset(currentNode); cursor.hasNext(); ) {
+                    int i = cursor.next();
                     if (!marked[i]) {
                         marked[i] = true;
-                        stack.push(i);
+                        stack[top++] = i;
                         parents[i] = currentNode;
                     }
                 }
+                // reverse the nodes just pushed, as if the neighbors had been pushed in reverse
+                for (int i = first, j = top - 1; i < j; i++, j--) {
+                    int temp = stack[i];
+                    stack[i] = stack[j];
+                    stack[j] = temp;
+                }
+                if (listener != null) {
+                    listener.frontierSize(top);
+                }
             }
         }
-        System.out.println("Number visited: " + countMarked(marked));
-        return new ArrayList<Integer>();    }
+        List<Integer> path = new ArrayList<Integer>();
+        if (listener != null) {
+            listener.searchFinished(path);
+        }
+        return path;
+    }
 
     /**
      * Takes in a ProcessedGraph object which contains a graph represented as an adjacency list,
@@ -332,52 +547,438 @@ public class MazeGraph {
      * same length or shorter than DFS. It does usually visit more nodes than DFS, however.
      */
     public static List<Integer> bfs(ProcessedGraph processedGraph) {
+        return bfs(processedGraph, false, null);
+    }
+
+    /**
+     * Runs BFS as above, on ParallelBfs if parallel is true. See below.
+     */
+    public static List<Integer> bfs(ProcessedGraph processedGraph, boolean parallel) {
+        return bfs(processedGraph, parallel, null);
+    }
+
+    /**
+     * Runs BFS as above, on either the sequential engine below or, if parallel is true, on
+     * ParallelBfs, which expands each level of the search across all cores. Both engines build
+     * the same parent array, so they return the same path. The search reports its progress
+     * to the listener unless it is null.
+     */
+    public static List<Integer> bfs(ProcessedGraph processedGraph, boolean parallel, SearchListener listener) {
         Graph graph = processedGraph.graph;
+        int startNode = processedGraph.startNode;
+        int goalNode = processedGraph.goalNode;
+        if (listener != null) {
+            listener.searchStarted();
+        }
+        int[] parents = parallel
+                ? new ParallelBfs().search(graph, startNode, goalNode, listener)
+                : bfsTree(graph, startNode, goalNode, listener);
+        List<Integer> path;
+        if (goalNode == startNode || parents[goalNode] != -1) {
+            path = tracePath(parents, startNode, goalNode);
+        } else {
+            path = new ArrayList<Integer>();
+        }
+        if (listener != null) {
+            listener.searchFinished(path);
+        }
+        return path;
+    }
+
+    /**
+     * Runs a sequential BFS from the start node, and returns the array of the parent of each
+     * node in the BFS tree, or -1 for the start node and nodes that were not reached. The search
+     * stops when the goal node is reached; pass -1 as the goal to build the whole tree.
+     */
+    public static int[] bfsTree(Graph graph, int startNode, int goalNode) {
+        return bfsTree(graph, startNode, goalNode, null);
+    }
+
+    /**
+     * Builds the BFS tree as above, reporting expanded nodes and the queue size to the
+     * listener unless it is null.
+     */
+    public static int[] bfsTree(Graph graph, int startNode, int goalNode, SearchListener listener) {
         boolean[] marked = new boolean[graph.getSize()];
         Arrays.fill(marked, false);
-        // Queue for the BFS algorithm
-        Queue<Integer> queue = new LinkedBlockingQueue<Integer>();
+        // Queue for the BFS algorithm.  Every node is enqueued at most once,
+        // so a plain array the size of the graph serves as the queue.
+        int[] queue = new int[graph.getSize()];
+        int head = 0;
+        int tail = 0;
+        NeighborCursor cursor = graph.newCursor();
         // Array to keep track of the parents of each node in the BFS.
         // It allows for the ability to backtrack from the goal to the
         // start if and when the goal node is found.
         int[] parents = new int[graph.getSize()];
         Arrays.fill(parents, -1);
-        int startNode = processedGraph.startNode;
-        int goalNode = processedGraph.goalNode;
-        queue.add(startNode);
+        queue[tail++] = startNode;
         marked[startNode] = true;
-        while (!queue.isEmpty()) {
-//            System.out.println(queue);
-            int currentNode = queue.remove();
+        while (head < tail) {
+            int currentNode = queue[head++];
+            if (listener != null) {
+                listener.nodesExpanded(1);
+            }
             if (currentNode == goalNode) {
-                List<Integer> path = new ArrayList<Integer>();
-                while (currentNode != startNode) {
-                    path.add(0, currentNode);
-                    currentNode = parents[currentNode];
-                }
-                path.add(0, startNode);
-                System.out.println("Number visited: " + countMarked(marked));
-                return path;
+                return parents;
             } else {
-                for (int i : graph.getNeighbors(currentNode)) {
+                for (cursor.reset(currentNode); cursor.hasNext(); ) {
+                    int i = cursor.next();
                     if (!marked[i]) {
                         marked[i] = true;
-                        queue.add(i);
+                        queue[tail++] = i;
                         parents[i] = currentNode;
                     }
                 }
+                if (listener != null) {
+                    listener.frontierSize(tail - head);
+                }
             }
         }
-        System.out.println("Number visited: " + countMarked(marked));
-        return new ArrayList<Integer>();
+        return parents;
     }
 
-    private static int countMarked(boolean[] marked) {
-        int count = 0;
-        for (boolean b : marked) {
-            count += b ? 1 : 0;
+    /**
+     * Computes a shortest path from start to goal (if one exists) with a bidirectional
+     * breadth-first search. See below.
+     */
+    public static List<Integer> bidirectionalBfs(ProcessedGraph processedGraph) {
+        return bidirectionalBfs(processedGraph.graph, processedGraph.startNode, processedGraph.goalNode, null);
+    }
+
+    /**
+     * Runs a bidirectional BFS between two nodes of any graph. See below.
+     */
+    public static List<Integer> bidirectionalBfs(Graph graph, int startNode, int goalNode) {
+        return bidirectionalBfs(graph, startNode, goalNode, null);
+    }
+
+    /**
+     * Runs a breadth-first search from the start and another from the goal, one level at a
+     * time, always expanding whichever side has the smaller frontier. Each side keeps its own
+     * distance and parent arrays. Whenever a node being expanded has a neighbor the other side
+     * has already reached, the two searches have met, and once the whole level is done the
+     * best such meeting gives the shortest path: the first half is traced back through the
+     * start side's parents, and the second half forward through the goal side's.
+     *
+     * It finds a path the same length as BFS, but since each side only has to search about
+     * half as far, it usually visits far fewer nodes. The graph is treated as undirected.
+     * If there is no path, an empty list is returned. The search reports its progress to the
+     * listener unless it is null.
+     */
+    public static List<Integer> bidirectionalBfs(Graph graph, int startNode, int goalNode, SearchListener listener) {
+        if (listener != null) {
+            listener.searchStarted();
+        }
+        if (startNode == goalNode) {
+            List<Integer> path = new ArrayList<Integer>(Collections.singletonList(startNode));
+            if (listener != null) {
+                listener.searchFinished(path);
+            }
+            return path;
+        }
+        int size = graph.getSize();
+        // index 0 is the side searching from the start, index 1 from the goal
+        int[][] distances = new int[2][size];
+        int[][] parents = new int[2][size];
+        int[][] queues = new int[2][size];
+        int[] heads = new int[2];
+        int[] tails = new int[2];
+        Arrays.fill(distances[0], -1);
+        Arrays.fill(distances[1], -1);
+        int[] roots = {startNode, goalNode};
+        for (int side = 0; side < 2; side++) {
+            distances[side][roots[side]] = 0;
+            parents[side][roots[side]] = -1;
+            queues[side][tails[side]++] = roots[side];
+        }
+        NeighborCursor cursor = graph.newCursor();
+        int best = Integer.MAX_VALUE;   // the length of the best path found so far
+        int meetStart = -1;             // the edge where it crosses from the start side to the goal side
+        int meetGoal = -1;
+        while (best == Integer.MAX_VALUE && heads[0] < tails[0] && heads[1] < tails[1]) {
+            int side = (tails[0] - heads[0] <= tails[1] - heads[1]) ? 0 : 1;
+            int[] distance = distances[side];
+            int[] other = distances[1 - side];
+            int[] queue = queues[side];
+            int levelEnd = tails[side];
+            if (listener != null) {
+                listener.nodesExpanded(levelEnd - heads[side]);
+            }
+            while (heads[side] < levelEnd) {
+                int currentNode = queue[heads[side]++];
+                for (cursor.reset(currentNode); cursor.hasNext(); ) {
+                    int i = cursor.next();
+                    if (distance[i] == -1) {
+                        distance[i] = distance[currentNode] + 1;
+                        parents[side][i] = currentNode;
+                        queue[tails[side]++] = i;
+                    }
+                    if (other[i] != -1 && distance[currentNode] + 1 + other[i] < best) {
+                        best = distance[currentNode] + 1 + other[i];
+                        meetStart = side == 0 ? currentNode : i;
+                        meetGoal = side == 0 ? i : currentNode;
+                    }
+                }
+            }
+            if (listener != null) {
+                listener.frontierSize(tails[0] - heads[0] + tails[1] - heads[1]);
+            }
+        }
+        List<Integer> path;
+        if (best == Integer.MAX_VALUE) {
+            path = new ArrayList<Integer>();
+        } else {
+            path = tracePath(parents[0], startNode, meetStart);
+            for (int node = meetGoal; node != -1; node = parents[1][node]) {
+                path.add(node);
+            }
+        }
+        if (listener != null) {
+            listener.searchFinished(path);
+        }
+        return path;
+    }
+
+    /**
+     * Runs A* search from the start to the goal of the ProcessedGraph, using the Manhattan
+     * distance between the squares of the ProcessedMaze as the heuristic. See below.
+     */
+    public static List<Integer> astar(ProcessedGraph processedGraph, ProcessedMaze maze) {
+        return astar(processedGraph, manhattan(maze.openSquares), null);
+    }
+
+    /**
+     * Runs A* search with the given heuristic. See below.
+     */
+    public static List<Integer> astar(ProcessedGraph processedGraph, Heuristic heuristic) {
+        return astar(processedGraph, heuristic, null);
+    }
+
+    /**
+     * Takes in a ProcessedGraph and a heuristic, and computes a path from start to goal (if one
+     * exists) using A* search. Nodes are expanded in order of f = g + h, where g is the distance
+     * from the start and h is the heuristic estimate of the distance to the goal. Ties go first
+     * to the node with the smaller h, which is closer to the goal, and then to the smaller node
+     * number, so the search is deterministic. The open set is a primitive binary heap; nodes that
+     * are improved are pushed again, and their stale entries skipped when they come out.
+     *
+     * As long as the heuristic never overestimates and is consistent (as the Manhattan distance
+     * is on a maze), the path is a shortest path, the same length as the one BFS finds. Because
+     * the search heads toward the goal, it usually expands far fewer nodes than BFS, particularly
+     * in open mazes.  If there is no path, an empty list is returned. The search reports its
+     * progress to the listener unless it is null.
+     */
+    public static List<Integer> astar(ProcessedGraph processedGraph, Heuristic heuristic, SearchListener listener) {
+        Graph graph = processedGraph.graph;
+        int size = graph.getSize();
+        int startNode = processedGraph.startNode;
+        int goalNode = processedGraph.goalNode;
+        int[] distances = new int[size];  // g, the best known distance from the start
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        boolean[] closed = new boolean[size];
+        int[] parents = new int[size];
+        Arrays.fill(parents, -1);
+        IntMinHeap open = new IntMinHeap();
+        NeighborCursor cursor = graph.newCursor();
+        if (listener != null) {
+            listener.searchStarted();
+        }
+        distances[startNode] = 0;
+        open.add(priority(0, heuristic.estimate(startNode, goalNode)), startNode);
+        while (!open.isEmpty()) {
+            int currentNode = open.removeMin();
+            if (closed[currentNode]) {
+                continue;   // a stale entry for a node that was already expanded
+            }
+            closed[currentNode] = true;
+            if (listener != null) {
+                listener.nodesExpanded(1);
+            }
+            if (currentNode == goalNode) {
+                List<Integer> path = tracePath(parents, startNode, goalNode);
+                if (listener != null) {
+                    listener.searchFinished(path);
+                }
+                return path;
+            }
+            int distance = distances[currentNode] + 1;
+            for (cursor.reset(currentNode); cursor.hasNext(); ) {
+                int i = cursor.next();
+                if (!closed[i] && distance < distances[i]) {
+                    distances[i] = distance;
+                    parents[i] = currentNode;
+                    open.add(priority(distance, heuristic.estimate(i, goalNode)), i);
+                }
+            }
+            if (listener != null) {
+                listener.frontierSize(open.size());
+            }
+        }
+        List<Integer> path = new ArrayList<Integer>();
+        if (listener != null) {
+            listener.searchFinished(path);
+        }
+        return path;
+    }
+
+    /**
+     * Packs f = g + h into the high half of a heap key and h into the low half,
+     * so keys order by f and then by h.
+     */
+    private static long priority(int distance, int estimate) {
+        return ((long) (distance + estimate) << 32) | estimate;
+    }
+
+    /**
+     * Returns a heuristic giving the Manhattan distance between the squares of two nodes,
+     * where the position of node i is positions.get(i).
+     */
+    public static Heuristic manhattan(List<Position> positions) {
+        final int[] rows = new int[positions.size()];
+        final int[] cols = new int[positions.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = positions.get(i).x;
+            cols[i] = positions.get(i).y;
+        }
+        return new Heuristic() {
+            @Override
+            public int estimate(int node, int goal) {
+                return Math.abs(rows[node] - rows[goal]) + Math.abs(cols[node] - cols[goal]);
+            }
+        };
+    }
+
+    /**
+     * Finds a cheapest path with Dial's algorithm, without a listener. See below.
+     */
+    public static CostedPath dial(ProcessedGraph processedGraph) {
+        return dial(processedGraph, null);
+    }
+
+    /**
+     * Finds a cheapest path from start to goal in a weighted graph, such as one from
+     * mazeToWeightedGraph, with Dial's algorithm.  It is Dijkstra's algorithm with the heap
+     * replaced by a circular array of buckets, one for each distance, so with small integer
+     * costs every queue operation is O(1).  The search only ever holds distances from d to
+     * d + C, for largest weight C, so C + 1 buckets are enough, and the whole search takes
+     * O(n + m + D) time for a path of cost D.
+     *
+     * Each bucket is a doubly linked list threaded through arrays indexed by node, so a node
+     * moves to a nearer bucket in O(1) when a cheaper way to it is found.  If there is no path,
+     * the path is empty and the cost is -1.  The search reports its progress to the listener
+     * unless it is null.
+     */
+    public static CostedPath dial(ProcessedGraph processedGraph, SearchListener listener) {
+        WeightedGraph graph = (WeightedGraph) processedGraph.graph;
+        int startNode = processedGraph.startNode;
+        int goalNode = processedGraph.goalNode;
+        int size = graph.getSize();
+        WeightedNeighborCursor cursor = graph.newWeightedCursor();
+        int maxWeight = 0;
+        for (int node = 0; node < size; node++) {
+            for (cursor.reset(node); cursor.hasNext(); ) {
+                cursor.next();
+                maxWeight = Math.max(maxWeight, cursor.weight());
+            }
+        }
+        int buckets = maxWeight + 1;
+        int[] heads = new int[buckets];     // the first node in each bucket, or -1
+        Arrays.fill(heads, -1);
+        int[] next = new int[size];
+        int[] previous = new int[size];
+        long[] distances = new long[size];
+        Arrays.fill(distances, Long.MAX_VALUE);
+        boolean[] settled = new boolean[size];
+        int[] parents = new int[size];
+        Arrays.fill(parents, -1);
+        if (listener != null) {
+            listener.searchStarted();
+        }
+        distances[startNode] = 0;
+        link(startNode, 0, heads, next, previous);
+        int queued = 1;
+        long distance = 0;
+        while (queued > 0) {
+            int bucket = (int) (distance % buckets);
+            while (heads[bucket] == -1) {
+                distance++;
+                bucket = (int) (distance % buckets);
+            }
+            int currentNode = heads[bucket];
+            unlink(currentNode, bucket, heads, next, previous);
+            queued--;
+            settled[currentNode] = true;
+            if (listener != null) {
+                listener.nodesExpanded(1);
+            }
+            if (currentNode == goalNode) {
+                break;
+            }
+            for (cursor.reset(currentNode); cursor.hasNext(); ) {
+                int i = cursor.next();
+                long newDistance = distance + cursor.weight();
+                if (!settled[i] && newDistance < distances[i]) {
+                    if (distances[i] == Long.MAX_VALUE) {
+                        queued++;
+                    } else {
+                        unlink(i, (int) (distances[i] % buckets), heads, next, previous);
+                    }
+                    distances[i] = newDistance;
+                    parents[i] = currentNode;
+                    link(i, (int) (newDistance % buckets), heads, next, previous);
+                }
+            }
+            if (listener != null) {
+                listener.frontierSize(queued);
+            }
+        }
+        CostedPath result;
+        if (settled[goalNode]) {
+            result = new CostedPath(tracePath(parents, startNode, goalNode), distances[goalNode]);
+        } else {
+            result = new CostedPath(new ArrayList<Integer>(), -1);
+        }
+        if (listener != null) {
+            listener.searchFinished(result.path);
+        }
+        return result;
+    }
+
+    private static void link(int node, int bucket, int[] heads, int[] next, int[] previous) {
+        next[node] = heads[bucket];
+        previous[node] = -1;
+        if (heads[bucket] != -1) {
+            previous[heads[bucket]] = node;
+        }
+        heads[bucket] = node;
+    }
+
+    private static void unlink(int node, int bucket, int[] heads, int[] next, int[] previous) {
+        if (previous[node] == -1) {
+            heads[bucket] = next[node];
+        } else {
+            next[previous[node]] = next[node];
+        }
+        if (next[node] != -1) {
+            previous[next[node]] = previous[node];
+        }
+    }
+
+    /**
+     * Backtracks through a parents array from the goal to the start, and returns the path
+     * from start to goal.  The path is filled in from the back, so this runs in linear time.
+     */
+    static List<Integer> tracePath(int[] parents, int startNode, int goalNode) {
+        int length = 1;
+        for (int node = goalNode; node != startNode; node = parents[node]) {
+            length++;
+        }
+        Integer[] path = new Integer[length];
+        for (int node = goalNode; length > 0; node = parents[node]) {
+            path[--length] = node;
         }
-        return count;
+        return new ArrayList<Integer>(Arrays.asList(path));
     }
 
     /**
@@ -397,16 +998,18 @@ public class MazeGraph {
         System.out.println("StartNode=" + processedGraph.startNode + " GoalNode=" + processedGraph.goalNode);
         double repetitions = 1;
 
+        SearchStats stats = new SearchStats();
         System.out.println("DFS:");
         long start = System.currentTimeMillis();
         List<Integer> path = new ArrayList<Integer>();
         for (int i=0; i<repetitions; i++) {
-            path = dfs(processedGraph);
+            path = dfs(processedGraph, stats);
         }
         double elapsed = (System.currentTimeMillis() - start) / repetitions;
         System.out.println(path);
         System.out.println("Path length: " + path.size());
         System.out.println("Elapsed Time: " + elapsed);
+        System.out.println(stats);
         System.out.println();
 
 //        System.out.println("DFS2:");
@@ -423,12 +1026,65 @@ public class MazeGraph {
         System.out.println("BFS:");
         start = System.currentTimeMillis();
         for (int i=0; i<repetitions; i++) {
-            path = bfs(processedGraph);
+            path = bfs(processedGraph, false, stats);
+        }
+        elapsed = (System.currentTimeMillis() - start) / repetitions;
+        System.out.println(path);
+        System.out.println("Path length: " + path.size());
+        System.out.println("Elapsed Time: " + elapsed);
+        System.out.println(stats);
+        System.out.println();
+
+        System.out.println("Bidirectional BFS:");
+        start = System.currentTimeMillis();
+        for (int i=0; i<repetitions; i++) {
+            path = bidirectionalBfs(processedGraph.graph, processedGraph.startNode, processedGraph.goalNode, stats);
+        }
+        elapsed = (System.currentTimeMillis() - start) / repetitions;
+        System.out.println(path);
+        System.out.println("Path length: " + path.size());
+        System.out.println("Elapsed Time: " + elapsed);
+        System.out.println(stats);
+        System.out.println();
+
+        System.out.println("A*:");
+        ProcessedMaze maze = collectOpenSquares(unprocessedMaze);
+        start = System.currentTimeMillis();
+        for (int i=0; i<repetitions; i++) {
+            path = astar(processedGraph, manhattan(maze.openSquares), stats);
+        }
+        elapsed = (System.currentTimeMillis() - start) / repetitions;
+        System.out.println(path);
+        System.out.println("Path length: " + path.size());
+        System.out.println("Elapsed Time: " + elapsed);
+        System.out.println(stats);
+        System.out.println();
+
+        System.out.println("Dial (terrain costs):");
+        ProcessedGraph weightedGraph = mazeToWeightedGraph(unprocessedMaze);
+        CostedPath costedPath = null;
+        start = System.currentTimeMillis();
+        for (int i=0; i<repetitions; i++) {
+            costedPath = dial(weightedGraph, stats);
+        }
+        elapsed = (System.currentTimeMillis() - start) / repetitions;
+        System.out.println(costedPath.path);
+        System.out.println("Path length: " + costedPath.path.size() + ", cost: " + costedPath.cost);
+        System.out.println("Elapsed Time: " + elapsed);
+        System.out.println(stats);
+        System.out.println();
+
+        System.out.println("Jump Point Search:");
+        ProcessedGraph gridGraph = mazeToGridGraph(unprocessedMaze);
+        start = System.currentTimeMillis();
+        for (int i=0; i<repetitions; i++) {
+            path = JumpPointSearch.search(gridGraph, stats);
         }
         elapsed = (System.currentTimeMillis() - start) / repetitions;
         System.out.println(path);
         System.out.println("Path length: " + path.size());
         System.out.println("Elapsed Time: " + elapsed);
+        System.out.println(stats);
         System.out.println();
     }
 
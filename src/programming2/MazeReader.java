@@ -0,0 +1,169 @@
+package programming2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads a maze file straight into a BitGrid, for mazes too big to hold as a List of Strings.
+ * The file is streamed through a small NIO buffer twice: once to find the number of rows and
+ * the widest row, so the grid can be allocated, and once to fill it in.  No line of text is
+ * ever held in memory, so reading takes about one bit per square, plus the rank table of the
+ * GridGraph built on top.
+ *
+ * The maze comes out exactly as MazeGraph.mazeToGridGraph(MazeGraph.readMaze(...)) would make
+ * it.  Lines end at \n, \r or \r\n, and are trimmed of leading and trailing whitespace like
+ * readMaze does, so the first non-blank character of each line is column 0.  Any character
+ * other than X (either case) is open, S marks the start and G the goal.
+ */
+public class MazeReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private BitGrid grid;       // null during the sizing pass
+    private int rows;
+    private int cols;
+    private int startRow = -1;
+    private int startCol = -1;
+    private int goalRow = -1;
+    private int goalCol = -1;
+
+    private MazeReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Reads the maze file at the given path, and returns it as a GridGraph with its start and
+     * goal nodes, or null if the maze has no start or no goal, like MazeGraph.mazeToGridGraph.
+     */
+    public static MazeGraph.ProcessedGraph read(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            MazeReader reader = new MazeReader(channel);
+            reader.scan();
+            reader.grid = new BitGrid(reader.rows, reader.cols);
+            channel.position(0);
+            reader.scan();
+            return reader.toProcessedGraph();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Makes one pass over the file.  Without a grid it only measures the rows; with one it
+     * opens the squares and records the start and goal.
+     */
+    private void scan() throws IOException {
+        int row = 0;
+        int raw = 0;            // characters seen so far on this line
+        int first = -1;         // the raw index of the first non-blank character, or -1
+        int width = 0;          // the trimmed width of the line so far
+        int pendingBlanks = 0;  // blanks after the last non-blank, open only if more follows
+        boolean afterReturn = false;
+        boolean lineStarted = false;
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                int b = buffer.get() & 0xFF;
+                if (b == '\n' || b == '\r') {
+                    if (!(b == '\n' && afterReturn)) {
+                        endLine(row++, width);
+                    }
+                    afterReturn = b == '\r';
+                    raw = 0;
+                    first = -1;
+                    width = 0;
+                    pendingBlanks = 0;
+                    lineStarted = false;
+                    continue;
+                }
+                afterReturn = false;
+                lineStarted = true;
+                if ((b & 0xC0) == 0x80) {
+                    continue;   // a UTF-8 continuation byte, part of the previous character
+                }
+                if (b <= ' ') {
+                    if (first != -1) {
+                        pendingBlanks++;
+                    }
+                } else {
+                    if (first == -1) {
+                        first = raw;
+                    }
+                    int col = raw - first;
+                    if (grid != null) {
+                        // blanks inside the line are open squares
+                        for (int i = col - pendingBlanks; i < col; i++) {
+                            grid.setOpen(row, i, true);
+                        }
+                        openSquare(row, col, b);
+                    }
+                    pendingBlanks = 0;
+                    width = col + 1;
+                }
+                raw++;
+            }
+            buffer.clear();
+        }
+        if (lineStarted) {
+            endLine(row, width);
+        }
+    }
+
+    private void endLine(int row, int width) {
+        if (grid == null) {
+            rows = row + 1;
+            cols = Math.max(cols, width);
+        }
+    }
+
+    private void openSquare(int row, int col, int b) {
+        if (b == 'X' || b == 'x') {
+            return;
+        }
+        if (b == 'S' || b == 's') {
+            startRow = row;
+            startCol = col;
+        } else if (b == 'G' || b == 'g') {
+            goalRow = row;
+            goalCol = col;
+        }
+        grid.setOpen(row, col, true);
+    }
+
+    private MazeGraph.ProcessedGraph toProcessedGraph() {
+        if (startRow != -1 && goalRow != -1) {
+            GridGraph graph = new GridGraph(grid);
+            return new MazeGraph.ProcessedGraph(graph.getNode(startRow, startCol), graph.getNode(goalRow, goalCol), graph);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Reads each maze named in the arguments from the mazes folder both ways, and checks
+     * that the streamed grid gives the same graph as readMaze and mazeToGridGraph.
+     */
+    public static void main(String[] args) throws IOException {
+        for (String mazeFile : args) {
+            long start = System.nanoTime();
+            MazeGraph.ProcessedGraph streamed = read("src/programming2/mazes/" + mazeFile);
+            long streamNanos = System.nanoTime() - start;
+            MazeGraph.ProcessedGraph parsed = MazeGraph.mazeToGridGraph(MazeGraph.readMaze(mazeFile));
+            BitGrid grid = ((GridGraph) streamed.graph).getGrid();
+            List<Integer> path = MazeGraph.bfs(streamed);
+            boolean same = streamed.startNode == parsed.startNode && streamed.goalNode == parsed.goalNode
+                    && grid.getRows() == ((GridGraph) parsed.graph).getGrid().getRows()
+                    && grid.getCols() == ((GridGraph) parsed.graph).getGrid().getCols()
+                    && path.equals(MazeGraph.bfs(parsed));
+            System.out.println(mazeFile + ": " + grid.getRows() + "x" + grid.getCols() + ", "
+                    + grid.countOpen() + " open, read in " + streamNanos / 1000 + " us, same as readMaze: " + same);
+        }
+    }
+}
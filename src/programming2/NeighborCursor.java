@@ -0,0 +1,46 @@
+package programming2;
+
+/**
+ * A reusable iterator over the neighbors of a node, returning primitive ints.  A cursor is
+ * obtained once from Graph.newCursor() and then pointed at any number of nodes with reset,
+ * so walking the neighbors of every node in a search allocates nothing:
+ *
+ *     NeighborCursor cursor = graph.newCursor();
+ *     for (cursor.reset(node); cursor.hasNext(); ) {
+ *         int neighbor = cursor.next();
+ *         ...
+ *     }
+ *
+ * Neighbors come out in the same order as Graph.getNeighbors returns them.  A search that
+ * comes back to a node later can save its place with position and resume it with reset.
+ */
+public interface NeighborCursor {
+
+    /**
+     * Points the cursor at the first neighbor of the given node.  Returns this cursor.
+     */
+    NeighborCursor reset(int node);
+
+    /**
+     * Points the cursor back at a place in the neighbors of the given node, saved earlier
+     * with position().  Returns this cursor.
+     */
+    NeighborCursor reset(int node, int position);
+
+    /**
+     * Returns the current place in the neighbors of the current node, which only means
+     * something to reset(node, position) on a cursor of the same graph.  This lets a search
+     * keep one int per node instead of one cursor, as the iterative DFS does.
+     */
+    int position();
+
+    /**
+     * Returns true if the current node has more neighbors
+     */
+    boolean hasNext();
+
+    /**
+     * Returns the next neighbor of the current node
+     */
+    int next();
+}
@@ -0,0 +1,334 @@
+package programming2;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A level-synchronous breadth-first search that expands each level of the search in parallel
+ * on a fork/join pool.  Visited nodes are tracked in an atomic bitset, so no locks are taken.
+ *
+ * When building the whole tree, with no goal, the search produces exactly the same parent array
+ * as the sequential MazeGraph.bfsTree.  With a goal the two stop at different points: this
+ * search stops after the level that reaches the goal, while the sequential one goes on to
+ * expand the nodes queued ahead of the goal, so the arrays differ in which nodes of the next
+ * level have parents.  Every parent set by both is the same, and so is the path to the goal.
+ * The sequential BFS gives each node the parent that comes first in the queue, so each level is
+ * processed in two phases.  In the first, every newly reached node records the smallest
+ * frontier position among its parents, by compare-and-set.  In the second, the frontier is
+ * scanned again in chunks, and each node is emitted by the parent whose position it recorded.
+ * Concatenating the chunks in order gives the next frontier in the same order as the queue.
+ *
+ * The first phase is direction-optimizing.  While the frontier is small it runs top-down, from
+ * each frontier node out to its neighbors.  Once the frontier gets large compared to the nodes
+ * not yet visited, it switches to bottom-up, where each unvisited node looks through its own
+ * neighbors for frontier nodes, which avoids contention on the compare-and-set.  Those choices
+ * follow Beamer's heuristic, estimated with node counts rather than edge counts.
+ *
+ * The graph is treated as undirected, and must be safe for concurrent reads, as all the graphs
+ * in this package are once built.
+ *
+ * An engine made with its own thread count owns its pool, and close releases it.
+ */
+public class ParallelBfs implements AutoCloseable {
+    // switch to bottom-up when the frontier is more than 1/ALPHA of the unvisited nodes and
+    // at least 1/BETA of all nodes, and back to top-down when it is less than 1/BETA of all nodes
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+    // levels smaller than this are expanded in the calling thread
+    private static final int MIN_CHUNK = 1024;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;    // false for the common pool, which is never shut down
+
+    /**
+     * Makes a search engine that runs on the common fork/join pool
+     */
+    public ParallelBfs() {
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Makes a search engine that runs on its own pool with the given number of threads
+     */
+    public ParallelBfs(int threads) {
+        this(new ForkJoinPool(threads), true);
+    }
+
+    private ParallelBfs(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Shuts down the engine's own pool, if it has one.  The common pool is left running.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Runs BFS from the start node, and returns the array of the parent of each node in the BFS
+     * tree, or -1 for the start node and nodes that were not reached.  The search stops at the
+     * end of the level where the goal node is reached; pass -1 as the goal to build the whole tree.
+     */
+    public int[] search(Graph graph, int startNode, int goalNode) {
+        return search(graph, startNode, goalNode, null);
+    }
+
+    /**
+     * Runs the search as above, reporting each level to the listener unless it is null.  The
+     * listener is only called from the calling thread, between levels, with the number of
+     * nodes in the level just expanded and the size of the next one.
+     */
+    public int[] search(Graph graph, int startNode, int goalNode, SearchListener listener) {
+        return new Search(graph).run(startNode, goalNode, listener);
+    }
+
+    /**
+     * The state of a single search
+     */
+    private class Search {
+        private final Graph graph;
+        private final int size;
+        private final int[] parents;
+        private final int[] levels;      // the level each node was reached at, or -1
+        private final int[] positions;   // the index of each node in its level's frontier
+        private final AtomicIntegerArray parentPositions;  // the best frontier position among a node's parents
+        private final AtomicLongArray visited;
+        private int[] frontier;
+        private int[] nextFrontier;
+        private int frontierSize;
+        private int level;
+        private int[][] chunkOutputs;
+        private int[] chunkSizes;
+
+        Search(Graph graph) {
+            this.graph = graph;
+            size = graph.getSize();
+            parents = new int[size];
+            Arrays.fill(parents, -1);
+            levels = new int[size];
+            Arrays.fill(levels, -1);
+            positions = new int[size];
+            parentPositions = new AtomicIntegerArray(size);
+            visited = new AtomicLongArray((size + 63) >>> 6);
+            frontier = new int[Math.max(size, 1)];
+            nextFrontier = new int[frontier.length];
+        }
+
+        int[] run(int startNode, int goalNode, SearchListener listener) {
+            for (int i = 0; i < size; i++) {
+                parentPositions.lazySet(i, Integer.MAX_VALUE);
+            }
+            frontier[0] = startNode;
+            frontierSize = 1;
+            positions[startNode] = 0;
+            levels[startNode] = 0;
+            markVisited(startNode);
+            int unvisited = size - 1;
+            boolean bottomUp = false;
+            while (frontierSize > 0 && (goalNode == -1 || !isVisited(goalNode))) {
+                // bottom-up steps scan every node, so they are only worth it while the frontier is
+                // large in absolute terms too; that also limits them to at most BETA levels
+                if (!bottomUp && (long) frontierSize * ALPHA > unvisited && (long) frontierSize * BETA >= size) {
+                    bottomUp = true;
+                } else if (bottomUp && (long) frontierSize * BETA < size) {
+                    bottomUp = false;
+                }
+                if (bottomUp) {
+                    parallelFor(size, new ChunkBody() {
+                        public void run(int chunk, int from, int to) {
+                            bottomUpStep(from, to);
+                        }
+                    });
+                } else {
+                    parallelFor(frontierSize, new ChunkBody() {
+                        public void run(int chunk, int from, int to) {
+                            topDownStep(from, to);
+                        }
+                    });
+                }
+                if (listener != null) {
+                    listener.nodesExpanded(frontierSize);
+                }
+                emitNextFrontier();
+                if (listener != null) {
+                    listener.frontierSize(frontierSize);
+                }
+                unvisited -= frontierSize;
+                level++;
+            }
+            return parents;
+        }
+
+        /**
+         * Phase one, top-down: each frontier node offers its position to its unvisited neighbors
+         */
+        private void topDownStep(int from, int to) {
+            NeighborCursor cursor = graph.newCursor();
+            for (int p = from; p < to; p++) {
+                for (cursor.reset(frontier[p]); cursor.hasNext(); ) {
+                    int node = cursor.next();
+                    if (!isVisited(node)) {
+                        int current = parentPositions.get(node);
+                        while (p < current && !parentPositions.compareAndSet(node, current, p)) {
+                            current = parentPositions.get(node);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Phase one, bottom-up: each unvisited node finds its frontier neighbor with the smallest position
+         */
+        private void bottomUpStep(int from, int to) {
+            NeighborCursor cursor = graph.newCursor();
+            for (int node = from; node < to; node++) {
+                if (!isVisited(node)) {
+                    int best = Integer.MAX_VALUE;
+                    for (cursor.reset(node); cursor.hasNext(); ) {
+                        int neighbor = cursor.next();
+                        if (levels[neighbor] == level && positions[neighbor] < best) {
+                            best = positions[neighbor];
+                        }
+                    }
+                    if (best != Integer.MAX_VALUE) {
+                        parentPositions.set(node, best);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Phase two: each frontier node emits the neighbors that chose it as their parent, into
+         * a separate buffer for each chunk, and the buffers are concatenated into the next frontier.
+         */
+        private void emitNextFrontier() {
+            int chunks = chunkCount(frontierSize);
+            chunkOutputs = new int[chunks][];
+            chunkSizes = new int[chunks];
+            parallelFor(frontierSize, new ChunkBody() {
+                public void run(int chunk, int from, int to) {
+                    NeighborCursor cursor = graph.newCursor();
+                    int[] output = new int[Math.max(16, to - from)];
+                    int count = 0;
+                    for (int p = from; p < to; p++) {
+                        int parent = frontier[p];
+                        for (cursor.reset(parent); cursor.hasNext(); ) {
+                            int node = cursor.next();
+                            if (parentPositions.get(node) == p && !isVisited(node)) {
+                                markVisited(node);
+                                parents[node] = parent;
+                                levels[node] = level + 1;
+                                if (count == output.length) {
+                                    output = Arrays.copyOf(output, count * 2);
+                                }
+                                output[count++] = node;
+                            }
+                        }
+                    }
+                    chunkOutputs[chunk] = output;
+                    chunkSizes[chunk] = count;
+                }
+            });
+            final int[] offsets = new int[chunks + 1];
+            for (int i = 0; i < chunks; i++) {
+                offsets[i + 1] = offsets[i] + chunkSizes[i];
+            }
+            final int[] next = nextFrontier;
+            parallelFor(frontierSize, new ChunkBody() {
+                public void run(int chunk, int from, int to) {
+                    int offset = offsets[chunk];
+                    for (int i = 0; i < chunkSizes[chunk]; i++) {
+                        int node = chunkOutputs[chunk][i];
+                        next[offset + i] = node;
+                        positions[node] = offset + i;
+                    }
+                }
+            });
+            nextFrontier = frontier;
+            frontier = next;
+            frontierSize = offsets[chunks];
+            chunkOutputs = null;
+        }
+
+        private boolean isVisited(int node) {
+            return (visited.get(node >>> 6) & (1L << node)) != 0;
+        }
+
+        private void markVisited(int node) {
+            int index = node >>> 6;
+            long bit = 1L << node;
+            long word = visited.get(index);
+            while ((word & bit) == 0 && !visited.compareAndSet(index, word, word | bit)) {
+                word = visited.get(index);
+            }
+        }
+
+        /**
+         * Splits the range [0, count) into chunkCount(count) equal chunks and runs the body on each,
+         * in parallel on the pool if there is more than one.
+         */
+        private void parallelFor(int count, ChunkBody body) {
+            int chunks = chunkCount(count);
+            if (chunks == 1) {
+                body.run(0, 0, count);
+            } else {
+                pool.invoke(new ChunkTask(body, count, chunks, 0, chunks));
+            }
+        }
+
+        private int chunkCount(int count) {
+            return Math.max(1, Math.min(pool.getParallelism() * 4, count / MIN_CHUNK));
+        }
+    }
+
+    private interface ChunkBody {
+        void run(int chunk, int from, int to);
+    }
+
+    /**
+     * Runs a ChunkBody over the chunks [firstChunk, lastChunk), forking halves until one chunk is left
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ChunkBody body;
+        private final int count;
+        private final int chunks;
+        private final int firstChunk;
+        private final int lastChunk;
+
+        ChunkTask(ChunkBody body, int count, int chunks, int firstChunk, int lastChunk) {
+            this.body = body;
+            this.count = count;
+            this.chunks = chunks;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastChunk - firstChunk == 1) {
+                int from = (int) ((long) count * firstChunk / chunks);
+                int to = (int) ((long) count * lastChunk / chunks);
+                body.run(firstChunk, from, to);
+            } else {
+                int middle = (firstChunk + lastChunk) >>> 1;
+                invokeAll(new ChunkTask(body, count, chunks, firstChunk, middle),
+                        new ChunkTask(body, count, chunks, middle, lastChunk));
+            }
+        }
+    }
+}
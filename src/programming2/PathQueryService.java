@@ -0,0 +1,234 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers many shortest-path queries against the same undirected graph.
+ *
+ * When it is made, the service labels the connected components of the graph, so a query
+ * between nodes in different components is answered as an empty path in O(1), without any
+ * search.  Otherwise it builds a whole BFS tree from the start node and keeps it in an LRU
+ * cache keyed by that node, so every later query from the same node, or to it, since paths
+ * can be reversed, is answered by tracing back through the cached tree.
+ *
+ * Queries may be made from any number of threads, and queryAll runs a batch of them on a
+ * thread pool.  When several queries from the same uncached node arrive at once, only one of
+ * them builds its tree, and the others wait for it.  Each path is a shortest path, of the same
+ * length as MazeGraph.bfs finds.
+ */
+public class PathQueryService {
+    private final Graph graph;
+    private final ConnectedComponents components;
+    private final Map<Integer, int[]> trees;    // BFS parent arrays by source node, least recently used first
+    // trees being built, by source node, so only one thread builds each; guarded by trees
+    private final Map<Integer, FutureTask<int[]>> building = new HashMap<Integer, FutureTask<int[]>>();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong unreachable = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile double throughput;
+
+    /**
+     * Makes a service over the graph of the ProcessedGraph that caches up to cacheSize BFS trees.
+     * Each tree takes 4 bytes per node of the graph.
+     */
+    public PathQueryService(MazeGraph.ProcessedGraph processedGraph, final int cacheSize) {
+        graph = processedGraph.graph;
+        components = new ConnectedComponents(graph);
+        trees = new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Checks in O(1) whether there is any path between the two nodes
+     */
+    public boolean isReachable(int node1, int node2) {
+        return components.sameComponent(node1, node2);
+    }
+
+    /**
+     * Returns a shortest path from the start node to the goal node, or an empty list if there is none
+     */
+    public List<Integer> query(int startNode, int goalNode) {
+        queries.incrementAndGet();
+        if (!isReachable(startNode, goalNode)) {
+            unreachable.incrementAndGet();
+            return new ArrayList<Integer>();
+        }
+        int[] tree;
+        FutureTask<int[]> build;
+        boolean builder = false;
+        synchronized (trees) {
+            tree = trees.get(startNode);
+            if (tree == null) {
+                int[] reverse = trees.get(goalNode);
+                if (reverse != null) {
+                    hits.incrementAndGet();
+                    List<Integer> path = MazeGraph.tracePath(reverse, goalNode, startNode);
+                    Collections.reverse(path);
+                    return path;
+                }
+            }
+            build = building.get(startNode);
+            if (tree == null && build == null) {
+                // this thread builds the tree, and any other query from the node waits for it
+                final int source = startNode;
+                build = new FutureTask<int[]>(new Callable<int[]>() {
+                    @Override
+                    public int[] call() {
+                        return MazeGraph.bfsTree(graph, source, -1);
+                    }
+                });
+                building.put(startNode, build);
+                builder = true;
+            }
+        }
+        if (tree != null) {
+            hits.incrementAndGet();
+        } else if (builder) {
+            // build the tree outside the lock, so other queries can go on meanwhile
+            misses.incrementAndGet();
+            try {
+                build.run();
+                tree = getTree(build);
+                synchronized (trees) {
+                    trees.put(startNode, tree);
+                }
+            } finally {
+                synchronized (trees) {
+                    building.remove(startNode);
+                }
+            }
+        } else {
+            hits.incrementAndGet();
+            tree = getTree(build);
+        }
+        return MazeGraph.tracePath(tree, startNode, goalNode);
+    }
+
+    private static int[] getTree(FutureTask<int[]> build) {
+        try {
+            return build.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Answers a batch of queries, the ith from starts[i] to goals[i], on a pool of the given
+     * number of threads, and returns the paths in the same order.  The throughput of the batch
+     * is recorded for getThroughput.
+     */
+    public List<List<Integer>> queryAll(final int[] starts, final int[] goals, int threads) {
+        long begin = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Integer>>> futures = new ArrayList<Future<List<Integer>>>(starts.length);
+            for (int i = 0; i < starts.length; i++) {
+                final int query = i;
+                futures.add(pool.submit(new Callable<List<Integer>>() {
+                    @Override
+                    public List<Integer> call() {
+                        return query(starts[query], goals[query]);
+                    }
+                }));
+            }
+            List<List<Integer>> paths = new ArrayList<List<Integer>>(starts.length);
+            for (Future<List<Integer>> future : futures) {
+                paths.add(future.get());
+            }
+            throughput = starts.length / ((System.nanoTime() - begin) / 1e9);
+            return paths;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public long getQueries() {
+        return queries.get();
+    }
+
+    /**
+     * Returns the number of queries answered by the component labels alone
+     */
+    public long getUnreachable() {
+        return unreachable.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the fraction of searched queries whose BFS tree was already cached
+     */
+    public double getHitRate() {
+        long searched = hits.get() + misses.get();
+        return searched == 0 ? 0 : (double) hits.get() / searched;
+    }
+
+    /**
+     * Returns the queries per second of the last queryAll batch
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public void printStatistics() {
+        System.out.println("Queries: " + getQueries());
+        System.out.println("Unreachable: " + getUnreachable());
+        System.out.printf("Cache hits: %d, misses: %d, hit rate: %.1f%%%n", getHits(), getMisses(), 100 * getHitRate());
+        System.out.printf("Throughput: %.0f queries/s%n", getThroughput());
+    }
+
+    /**
+     * Runs a batch of random queries, drawn from a small set of sources, against a random maze
+     */
+    public static void main(String[] args) {
+        MazeGraph.ProcessedGraph maze = MazeGraph.mazeToGraph(MazeBenchmark.randomMaze(500, 0.3, 1), true);
+        PathQueryService service = new PathQueryService(maze, 64);
+        int size = maze.graph.getSize();
+        Random random = new Random(1);
+        int[] sources = new int[40];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(size);
+        }
+        int[] starts = new int[10000];
+        int[] goals = new int[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = sources[random.nextInt(sources.length)];
+            goals[i] = random.nextInt(size);
+        }
+        service.queryAll(starts, goals, Runtime.getRuntime().availableProcessors());
+        service.printStatistics();
+    }
+}
@@ -0,0 +1,32 @@
+package programming2;
+
+import java.util.List;
+
+/**
+ * Receives progress from the searches in MazeGraph and the other search engines, for collecting
+ * metrics.  Every search takes an optional listener; when it is null, the search only pays for a
+ * null check.  SearchStats is the standard implementation.
+ */
+public interface SearchListener {
+
+    /**
+     * Called once before the search begins
+     */
+    void searchStarted();
+
+    /**
+     * Called as nodes are expanded, that is, have their neighbors examined.  Sequential searches
+     * report each node as they go; parallel ones report whole levels at a time.
+     */
+    void nodesExpanded(int count);
+
+    /**
+     * Called with the number of nodes waiting in the queue, stack or open set
+     */
+    void frontierSize(int size);
+
+    /**
+     * Called once when the search is done, with the path it found, which may be empty
+     */
+    void searchFinished(List<Integer> path);
+}
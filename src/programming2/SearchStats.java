@@ -0,0 +1,99 @@
+package programming2;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * A SearchListener that records the metrics of one search: nodes expanded, peak frontier size,
+ * path length, elapsed time and bytes allocated.  Pass a new SearchStats to a search and read
+ * the numbers back when it returns.
+ *
+ * Allocations are those of the searching thread, as reported by the JVM; they are -1 where the
+ * JVM cannot measure them, and do not include work done on other threads by parallel searches.
+ */
+public class SearchStats implements SearchListener {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private long nodesExpanded;
+    private int peakFrontier;
+    private int pathLength;
+    private long startNanos;
+    private long elapsedNanos;
+    private long startBytes;
+    private long allocatedBytes = -1;
+
+    @Override
+    public void searchStarted() {
+        nodesExpanded = 0;
+        peakFrontier = 0;
+        pathLength = 0;
+        startBytes = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void nodesExpanded(int count) {
+        nodesExpanded += count;
+    }
+
+    @Override
+    public void frontierSize(int size) {
+        if (size > peakFrontier) {
+            peakFrontier = size;
+        }
+    }
+
+    @Override
+    public void searchFinished(List<Integer> path) {
+        elapsedNanos = System.nanoTime() - startNanos;
+        long endBytes = allocatedBytes();
+        allocatedBytes = (startBytes < 0 || endBytes < 0) ? -1 : endBytes - startBytes;
+        pathLength = path.size();
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if that is not supported
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    public int getPeakFrontier() {
+        return peakFrontier;
+    }
+
+    /**
+     * Returns the number of nodes on the path found, or 0 if there was none
+     */
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "Nodes expanded: " + nodesExpanded
+                + ", peak frontier: " + peakFrontier
+                + ", path length: " + pathLength
+                + ", elapsed: " + elapsedNanos / 1000 + " us"
+                + ", allocated: " + allocatedBytes + " bytes";
+    }
+}
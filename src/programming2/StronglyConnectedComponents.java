@@ -0,0 +1,197 @@
+package programming2;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The strongly connected components of a directed graph, such as a DirectedMatrixGraph, found
+ * with Tarjan's algorithm, and its condensation, the DAG with one node per component.
+ *
+ * The depth-first search keeps its own stack of nodes instead of recursing, so it does not
+ * overflow the call stack on long paths.  Each frame saves the position of its neighbor cursor
+ * when it descends to a child, and resets the one shared cursor to it on the way back, so the
+ * search allocates nothing per node and runs in O(n + m) time.
+ *
+ * Tarjan's algorithm finishes the components in reverse topological order, so they are
+ * numbered backwards: component 0 has no arcs into it from other components, and every arc
+ * between components goes from a lower number to a higher one.
+ */
+public class StronglyConnectedComponents {
+    private final Graph graph;
+    private final int[] components;
+    private final int count;
+
+    public StronglyConnectedComponents(Graph graph) {
+        this.graph = graph;
+        int size = graph.getSize();
+        components = new int[size];
+        int[] index = new int[size];         // the preorder number of each node, or -1 if not visited
+        int[] lowlink = new int[size];       // the smallest preorder number reachable from the node's subtree
+        int[] callStack = new int[size];     // the nodes of the depth-first search path
+        int[] positions = new int[size];     // where each frame of callStack will resume its neighbors
+        int[] componentStack = new int[size];    // visited nodes not yet assigned a component
+        Arrays.fill(index, -1);
+        Arrays.fill(components, -1);
+        int visited = 0;
+        int depth = 0;
+        int stacked = 0;
+        int found = 0;
+        NeighborCursor cursor = graph.newCursor();
+        for (int root = 0; root < size; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            index[root] = lowlink[root] = visited++;
+            componentStack[stacked++] = root;
+            callStack[depth++] = root;
+            cursor.reset(root);
+            while (depth > 0) {
+                int node = callStack[depth - 1];
+                if (cursor.hasNext()) {
+                    int next = cursor.next();
+                    if (index[next] == -1) {
+                        positions[depth - 1] = cursor.position();
+                        index[next] = lowlink[next] = visited++;
+                        componentStack[stacked++] = next;
+                        callStack[depth++] = next;
+                        cursor.reset(next);
+                    } else if (components[next] == -1) {
+                        // still on the component stack, so part of the path's current component
+                        lowlink[node] = Math.min(lowlink[node], index[next]);
+                    }
+                } else {
+                    depth--;
+                    if (lowlink[node] == index[node]) {
+                        // the node is the root of a component: everything stacked above it
+                        int member;
+                        do {
+                            member = componentStack[--stacked];
+                            components[member] = found;
+                        } while (member != node);
+                        found++;
+                    }
+                    if (depth > 0) {
+                        int parent = callStack[depth - 1];
+                        lowlink[parent] = Math.min(lowlink[parent], lowlink[node]);
+                        cursor.reset(parent, positions[depth - 1]);
+                    }
+                }
+            }
+        }
+        // renumber so that components come in topological order
+        for (int node = 0; node < size; node++) {
+            components[node] = found - 1 - components[node];
+        }
+        count = found;
+    }
+
+    /**
+     * Returns the component of the node
+     */
+    public int getComponent(int node) {
+        return components[node];
+    }
+
+    /**
+     * Returns the component of every node.  The array belongs to this object and must not be changed.
+     */
+    public int[] getComponents() {
+        return components;
+    }
+
+    public int getComponentCount() {
+        return count;
+    }
+
+    /**
+     * Checks whether each of the two nodes can reach the other
+     */
+    public boolean sameComponent(int node1, int node2) {
+        return components[node1] == components[node2];
+    }
+
+    /**
+     * Returns the condensation of the graph, with node i for component i, and an arc from one
+     * component to another wherever the graph has an arc between their nodes.  It is acyclic,
+     * and its node numbers are a topological order.
+     */
+    public CsrGraph condensation() {
+        CsrGraph.Builder builder = new CsrGraph.Builder(count);
+        NeighborCursor cursor = graph.newCursor();
+        for (int node = 0; node < components.length; node++) {
+            for (cursor.reset(node); cursor.hasNext(); ) {
+                int next = cursor.next();
+                if (components[next] != components[node]) {
+                    builder.addArc(components[node], components[next]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the nodes of a directed graph in an order where every arc goes from an earlier
+     * node to a later one, found with Kahn's algorithm, or null if the graph has a cycle.  Nodes
+     * with no arcs left into them are taken smallest first.
+     */
+    public static int[] topologicalSort(Graph graph) {
+        int size = graph.getSize();
+        int[] inDegrees = new int[size];
+        NeighborCursor cursor = graph.newCursor();
+        for (int node = 0; node < size; node++) {
+            for (cursor.reset(node); cursor.hasNext(); ) {
+                inDegrees[cursor.next()]++;
+            }
+        }
+        // the order doubles as the queue: nodes are appended once nothing points to them
+        int[] order = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int node = 0; node < size; node++) {
+            if (inDegrees[node] == 0) {
+                order[tail++] = node;
+            }
+        }
+        while (head < tail) {
+            for (cursor.reset(order[head++]); cursor.hasNext(); ) {
+                int next = cursor.next();
+                if (--inDegrees[next] == 0) {
+                    order[tail++] = next;
+                }
+            }
+        }
+        return tail == size ? order : null;
+    }
+
+    /**
+     * Finds the components of a random directed graph, then checks that its condensation sorts
+     * topologically, with every arc going forward.
+     */
+    public static void main(String[] args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Random random = new Random(1);
+        DirectedMatrixGraph graph = new DirectedMatrixGraph(nodes);
+        // a long chain, which a recursive search could not follow, plus random arcs
+        for (int i = 0; i + 1 < nodes; i++) {
+            graph.addEdge(i, i + 1);
+        }
+        for (int i = 0; i < nodes; i++) {
+            graph.addEdge(random.nextInt(nodes), random.nextInt(nodes));
+        }
+        long start = System.currentTimeMillis();
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(graph);
+        System.out.println(nodes + " nodes, " + scc.getComponentCount() + " strongly connected components in "
+                + (System.currentTimeMillis() - start) + " ms");
+        CsrGraph dag = scc.condensation();
+        int[] order = topologicalSort(dag);
+        System.out.println("Condensation: " + dag.getSize() + " nodes, " + dag.getArcCount() + " arcs, acyclic: " + (order != null));
+        boolean forward = true;
+        for (int node = 0; node < dag.getSize(); node++) {
+            for (int next : dag.getNeighbors(node)) {
+                forward &= node < next;
+            }
+        }
+        System.out.println("Every arc goes forward: " + forward);
+        System.out.println("Graph itself sorts: " + (topologicalSort(graph) != null));
+    }
+}
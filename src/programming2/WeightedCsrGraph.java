@@ -0,0 +1,255 @@
+package programming2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable weighted graph in compressed sparse row form, like CsrGraph with a parallel array
+ * of weights.  The arcs of node i are targets[offsets[i]] through targets[offsets[i+1] - 1],
+ * sorted by target, with weights[j] the weight of the arc to targets[j].  A graph with n nodes
+ * and m stored arcs takes 4(n + 1) + 8m bytes.
+ *
+ * Graphs are built with a Builder.  Since the graph is immutable, addEdge throws an exception.
+ */
+public class WeightedCsrGraph implements WeightedGraph {
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int nodes;
+
+    private WeightedCsrGraph(int nodes, int[] offsets, int[] targets, int[] weights) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Weighted CSR graphs are immutable, so this always throws an UnsupportedOperationException.
+     * Use a Builder instead.
+     */
+    @Override
+    public void addEdge(int fromNode, int toNode) {
+        throw new UnsupportedOperationException("WeightedCsrGraph is immutable; use WeightedCsrGraph.Builder");
+    }
+
+    @Override
+    public int getSize() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of arcs stored in the graph.  Every undirected edge counts twice.
+     */
+    public int getArcCount() {
+        return targets.length;
+    }
+
+    @Override
+    public List<Integer> getNeighbors(int node) {
+        List<Integer> neighbors = new ArrayList<Integer>();
+        if ((0 <= node) && (node < nodes)) {
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                neighbors.add(targets[i]);
+            }
+        }
+        return neighbors;
+    }
+
+    @Override
+    public boolean areNeighbors(int node1, int node2) {
+        return indexOf(node1, node2) >= 0;
+    }
+
+    /**
+     * Binary searches the sorted arcs of fromNode for toNode.
+     */
+    @Override
+    public int getWeight(int fromNode, int toNode) {
+        int index = indexOf(fromNode, toNode);
+        return index >= 0 ? weights[index] : -1;
+    }
+
+    private int indexOf(int fromNode, int toNode) {
+        if ((0 <= fromNode) && (fromNode < nodes) && (0 <= toNode) && (toNode < nodes)) {
+            return Arrays.binarySearch(targets, offsets[fromNode], offsets[fromNode + 1], toNode);
+        }
+        return -1;
+    }
+
+    @Override
+    public int degree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    @Override
+    public void forEachNeighbor(int node, IntConsumer action) {
+        for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+            action.accept(targets[i]);
+        }
+    }
+
+    @Override
+    public NeighborCursor newCursor() {
+        return newWeightedCursor();
+    }
+
+    @Override
+    public WeightedNeighborCursor newWeightedCursor() {
+        return new WeightedNeighborCursor() {
+            private int index;
+            private int end;
+
+            @Override
+            public WeightedNeighborCursor reset(int node) {
+                index = offsets[node];
+                end = offsets[node + 1];
+                return this;
+            }
+
+            @Override
+            public WeightedNeighborCursor reset(int node, int position) {
+                index = position;
+                end = offsets[node + 1];
+                return this;
+            }
+
+            @Override
+            public int position() {
+                return index;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < end;
+            }
+
+            @Override
+            public int next() {
+                return targets[index++];
+            }
+
+            @Override
+            public int weight() {
+                return weights[index - 1];
+            }
+        };
+    }
+
+    /**
+     * Returns the approximate number of bytes used by the adjacency arrays.
+     */
+    public long memoryBytes() {
+        return 4L * offsets.length + 8L * targets.length;
+    }
+
+    /**
+     * Collects weighted arcs for a WeightedCsrGraph.  Like CsrGraph.Builder, arcs with nodes out
+     * of range and self loops are silently ignored.  If the same arc is added more than once,
+     * the graph keeps the smallest weight.  Weights must not be negative.
+     */
+    public static class Builder {
+        private final int nodes;
+        private int[] from;
+        private int[] to;
+        private int[] weight;
+        private int arcs;
+
+        public Builder(int nodes) {
+            this(nodes, 16);
+        }
+
+        /**
+         * Creates a builder with room for the given number of arcs before it has to grow.
+         */
+        public Builder(int nodes, int expectedArcs) {
+            this.nodes = nodes;
+            from = new int[Math.max(expectedArcs, 16)];
+            to = new int[from.length];
+            weight = new int[from.length];
+            arcs = 0;
+        }
+
+        /**
+         * Adds an undirected edge, stored as an arc of the same weight in each direction.
+         */
+        public Builder addEdge(int fromNode, int toNode, int weight) {
+            addArc(fromNode, toNode, weight);
+            addArc(toNode, fromNode, weight);
+            return this;
+        }
+
+        /**
+         * Adds a single directed arc.
+         */
+        public Builder addArc(int fromNode, int toNode, int weight) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Arc weights must not be negative: " + weight);
+            }
+            if ((0 <= fromNode) && (fromNode < nodes) && (0 <= toNode) && (toNode < nodes) && fromNode != toNode) {
+                if (arcs == from.length) {
+                    int newLength = from.length + (from.length >> 1);
+                    from = Arrays.copyOf(from, newLength);
+                    to = Arrays.copyOf(to, newLength);
+                    this.weight = Arrays.copyOf(this.weight, newLength);
+                }
+                from[arcs] = fromNode;
+                to[arcs] = toNode;
+                this.weight[arcs] = weight;
+                arcs++;
+            }
+            return this;
+        }
+
+        /**
+         * Builds the graph.  Arcs are bucketed by source with a counting sort, then each list
+         * is sorted by target and duplicates are merged, keeping the smallest weight.  The
+         * builder can be discarded afterwards.
+         */
+        public WeightedCsrGraph build() {
+            int[] offsets = new int[nodes + 1];
+            for (int i=0; i<arcs; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int i=0; i<nodes; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            // each arc is packed into a long, target in the high half and weight in the low,
+            // so sorting the longs sorts by target and puts the lightest duplicate first
+            long[] packed = new long[arcs];
+            int[] next = Arrays.copyOf(offsets, nodes);
+            for (int i=0; i<arcs; i++) {
+                packed[next[from[i]]++] = ((long) to[i] << 32) | weight[i];
+            }
+            from = null;
+            to = null;
+            weight = null;
+            int[] targets = new int[arcs];
+            int[] weights = new int[arcs];
+            int write = 0;
+            int start = 0;
+            for (int i=0; i<nodes; i++) {
+                int end = offsets[i + 1];
+                Arrays.sort(packed, start, end);
+                offsets[i] = write;
+                for (int j=start; j<end; j++) {
+                    int target = (int) (packed[j] >>> 32);
+                    if (write == offsets[i] || targets[write - 1] != target) {
+                        targets[write] = target;
+                        weights[write] = (int) packed[j];
+                        write++;
+                    }
+                }
+                start = end;
+            }
+            offsets[nodes] = write;
+            if (write < arcs) {
+                targets = Arrays.copyOf(targets, write);
+                weights = Arrays.copyOf(weights, write);
+            }
+            return new WeightedCsrGraph(nodes, offsets, targets, weights);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package programming2;
+
+/**
+ * A graph whose arcs have non-negative int weights.  The Graph methods see it as an unweighted
+ * graph with the same arcs, so the unweighted searches still run on it.
+ */
+public interface WeightedGraph extends Graph {
+
+    /**
+     * Returns the weight of the arc from one node to the other, or -1 if there is no such arc
+     */
+    int getWeight(int fromNode, int toNode);
+
+    /**
+     * Returns a new cursor over the neighbors of this graph's nodes and the weights of the
+     * arcs to them.  Searches should create one cursor up front and reset it for every node.
+     */
+    WeightedNeighborCursor newWeightedCursor();
+}
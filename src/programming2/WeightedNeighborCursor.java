@@ -0,0 +1,25 @@
+package programming2;
+
+/**
+ * A NeighborCursor over a weighted graph, which also gives the weight of the arc to each neighbor:
+ *
+ *     WeightedNeighborCursor cursor = graph.newWeightedCursor();
+ *     for (cursor.reset(node); cursor.hasNext(); ) {
+ *         int neighbor = cursor.next();
+ *         int weight = cursor.weight();
+ *         ...
+ *     }
+ */
+public interface WeightedNeighborCursor extends NeighborCursor {
+
+    @Override
+    WeightedNeighborCursor reset(int node);
+
+    @Override
+    WeightedNeighborCursor reset(int node, int position);
+
+    /**
+     * Returns the weight of the arc to the neighbor last returned by next
+     */
+    int weight();
+}
@@ -0,0 +1,168 @@
+package programming5;
+
+import programming2.IndexedMinHeap;
+import programming2.WeightedCsrGraph;
+import programming2.WeightedGraph;
+import programming2.WeightedNeighborCursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Single-source shortest paths with Dijkstra's algorithm, on sparse weighted graphs.
+ *
+ * Where FloydsAlgorithm.floyd takes O(n^3) time and an n by n matrix to find every distance,
+ * this finds the distances from one source in O(m log n) time and O(n + m) memory, using an
+ * indexed heap with decrease-key, so graphs with millions of nodes are no problem.
+ */
+public class Dijkstra {
+
+    /**
+     * The distance to nodes that cannot be reached
+     */
+    public static final long INF = Long.MAX_VALUE;
+
+    /**
+     * Finds the distance from the source to every node of the graph, or INF for nodes that
+     * cannot be reached.  If parents is not null, it is filled with the node before each node
+     * on a shortest path from the source, or -1 for the source and unreached nodes.
+     *
+     * @param graph
+     * @param source
+     * @param parents
+     * @return
+     */
+    public static long[] shortestDistances(WeightedGraph graph, int source, int[] parents) {
+        return search(graph, source, -1, parents);
+    }
+
+    /**
+     * Finds a shortest path from start to goal, stopping as soon as the goal is settled.
+     * Returns the nodes on the path, or an empty list if there is none.
+     *
+     * @param graph
+     * @param start
+     * @param goal
+     * @return
+     */
+    public static List<Integer> shortestPath(WeightedGraph graph, int start, int goal) {
+        int[] parents = new int[graph.getSize()];
+        long[] distances = search(graph, start, goal, parents);
+        List<Integer> path = new ArrayList<Integer>();
+        if (distances[goal] != INF) {
+            for (int node = goal; node != -1; node = parents[node]) {
+                path.add(node);
+            }
+            Collections.reverse(path);
+        }
+        return path;
+    }
+
+    /**
+     * Runs the search from the source until the goal is settled, or every reachable node is
+     * if goal is -1.  Each node enters the heap once, and is moved up when a shorter path to
+     * it is found, so the heap never holds more than n nodes.
+     */
+    private static long[] search(WeightedGraph graph, int source, int goal, int[] parents) {
+        int size = graph.getSize();
+        long[] distances = new long[size];
+        Arrays.fill(distances, INF);
+        if (parents != null) {
+            Arrays.fill(parents, -1);
+        }
+        boolean[] settled = new boolean[size];
+        IndexedMinHeap heap = new IndexedMinHeap(size);
+        WeightedNeighborCursor cursor = graph.newWeightedCursor();
+        distances[source] = 0;
+        heap.add(source, 0);
+        while (!heap.isEmpty()) {
+            int node = heap.removeMin();
+            settled[node] = true;
+            if (node == goal) {
+                break;
+            }
+            for (cursor.reset(node); cursor.hasNext(); ) {
+                int neighbor = cursor.next();
+                if (!settled[neighbor]) {
+                    long distance = distances[node] + cursor.weight();
+                    if (distance < distances[neighbor]) {
+                        distances[neighbor] = distance;
+                        if (parents != null) {
+                            parents[neighbor] = node;
+                        }
+                        heap.addOrDecrease(neighbor, distance);
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Converts an adjacency matrix in FloydsAlgorithm's form, with INF for no edge,
+     * to a weighted graph.
+     */
+    public static WeightedCsrGraph toGraph(int[][] adjMat) {
+        WeightedCsrGraph.Builder builder = new WeightedCsrGraph.Builder(adjMat.length);
+        for (int i=0; i<adjMat.length; i++) {
+            for (int j=0; j<adjMat.length; j++) {
+                if (i != j && adjMat[i][j] != FloydsAlgorithm.INF) {
+                    builder.addArc(i, j, adjMat[i][j]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Checks Dijkstra against Floyd's Algorithm on random matrices,
+     * then times it on a sparse graph far too big for Floyd.
+     * @param args
+     */
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        boolean agrees = true;
+        for (int k=50; k<=400; k+=50) {
+            int[][] matrix = new int[k][k];
+            for (int i=0; i<k; i++) {
+                for (int j=0; j<k; j++) {
+                    if (j != i) {
+                        // floyd ignores paths of length 0, so weights start at 1
+                        int value = 1 + random.nextInt(40);
+                        matrix[i][j] = (value > 20 ? FloydsAlgorithm.INF : value);
+                    }
+                }
+            }
+            int[][] floyd = FloydsAlgorithm.floyd(matrix);
+            WeightedCsrGraph graph = toGraph(matrix);
+            for (int i=0; i<k; i++) {
+                long[] distances = shortestDistances(graph, i, null);
+                for (int j=0; j<k; j++) {
+                    long expected = floyd[i][j] == FloydsAlgorithm.INF ? INF : floyd[i][j];
+                    agrees &= distances[j] == expected;
+                }
+            }
+        }
+        System.out.println("Agrees with Floyd: " + agrees);
+
+        int nodes = 2000000;
+        WeightedCsrGraph.Builder builder = new WeightedCsrGraph.Builder(nodes, 8 * nodes);
+        for (int i=0; i<4*nodes; i++) {
+            builder.addEdge(random.nextInt(nodes), random.nextInt(nodes), 1 + random.nextInt(100));
+        }
+        WeightedCsrGraph graph = builder.build();
+        long start = System.currentTimeMillis();
+        long[] distances = shortestDistances(graph, 0, null);
+        long elapsed = System.currentTimeMillis() - start;
+        long reached = 0;
+        for (long distance : distances) {
+            if (distance != INF) {
+                reached++;
+            }
+        }
+        System.out.println("Size " + nodes + ", " + graph.getArcCount() + " arcs: reached " + reached + " in " + elapsed + " ms");
+    }
+}
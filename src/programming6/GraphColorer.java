@@ -2,6 +2,7 @@ package programming6;
 
 import programming2.Graph;
 import programming2.MatrixGraph;
+import programming2.NeighborCursor;
 
 import java.util.*;
 
@@ -47,9 +48,10 @@ public class GraphColorer {
         int size = graph.getSize();
         boolean[] colors = new boolean[n];
         Arrays.fill(colors, true);
-        List<Integer> neighbors = graph.getNeighbors(node);
-        for (int i : neighbors) {
-            int color = coloring[i];
+        // each call needs its own cursor, since the recursion below resets cursors mid-scan
+        NeighborCursor neighbors = graph.newCursor();
+        for (neighbors.reset(node); neighbors.hasNext(); ) {
+            int color = coloring[neighbors.next()];
             if (color > -1) {
                 colors[color] = false;
             }
@@ -60,9 +62,9 @@ public class GraphColorer {
         for (int j=0; j<n && !valid; j++) {
             valid = colors[j];
             coloring[node] = j;
-            for (int i=0; i<neighbors.size() && valid; i++) {
+            for (neighbors.reset(node); neighbors.hasNext() && valid; ) {
                 // recurse on neighbors in a DFS manner
-                int neighbor = neighbors.get(i);
+                int neighbor = neighbors.next();
                 valid = (coloring[neighbor] > -1 || colorRecur(graph, n, coloring, neighbor));
             }
             if (!valid) {